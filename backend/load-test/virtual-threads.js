@@ -0,0 +1,55 @@
+// Throughput of the blocking endpoints under many concurrent connections, to compare the
+// default Tomcat platform-thread pool with the virtual-threads profile. See README.md.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e EMAIL=user@example.com -e PASSWORD=secret \
+//          -e PORTFOLIO_ID=1 -e VUS=1000 load-test/virtual-threads.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const EMAIL = __ENV.EMAIL;
+const PASSWORD = __ENV.PASSWORD;
+const PORTFOLIO_ID = __ENV.PORTFOLIO_ID || '1';
+const VUS = parseInt(__ENV.VUS || '1000', 10);
+
+export const options = {
+  scenarios: {
+    dashboard: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: VUS },
+        { duration: '2m', target: VUS },
+        { duration: '15s', target: 0 },
+      ],
+      gracefulRampDown: '10s',
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+// Log in once; every VU reuses the signed token
+export function setup() {
+  const login = http.post(`${BASE_URL}/api/auth/login`, JSON.stringify({ email: EMAIL, password: PASSWORD }),
+    { headers: { 'Content-Type': 'application/json' } });
+  if (login.status !== 200) {
+    throw new Error(`login failed with status ${login.status}`);
+  }
+  return { token: login.json('token') };
+}
+
+export default function (data) {
+  const headers = { Authorization: `Bearer ${data.token}` };
+
+  // JDBC-bound: portfolio summaries and investment listing
+  const summary = http.get(`${BASE_URL}/api/portfolios/summary`, { headers, tags: { name: 'summary' } });
+  check(summary, { 'summary 200': (r) => r.status === 200 });
+
+  const investments = http.get(`${BASE_URL}/api/portfolios/${PORTFOLIO_ID}/investments`,
+    { headers, tags: { name: 'investments' } });
+  check(investments, { 'investments 200': (r) => r.status === 200 });
+
+  // Upstream-bound: IPO calendar
+  const ipo = http.get(`${BASE_URL}/api/ipo/calendar/current-month`, { tags: { name: 'ipo' } });
+  check(ipo, { 'ipo 200': (r) => r.status === 200 });
+}
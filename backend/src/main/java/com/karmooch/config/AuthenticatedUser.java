@@ -0,0 +1,23 @@
+package com.karmooch.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * The caller of a request as vouched for by its signed token. Controllers receive it through
+ * {@code @AuthenticationPrincipal}; nothing here is loaded from the database.
+ */
+public record AuthenticatedUser(Long userId, List<String> roles) {
+
+    public AuthenticatedUser {
+        roles = List.copyOf(roles);
+    }
+
+    List<GrantedAuthority> authorities() {
+        return roles.stream()
+            .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+            .toList();
+    }
+}
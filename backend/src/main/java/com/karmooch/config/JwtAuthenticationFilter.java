@@ -0,0 +1,70 @@
+package com.karmooch.config;
+
+import com.karmooch.service.JwtService;
+import com.karmooch.service.StreamTicketService;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates requests carrying a signed JWT in the Authorization header.
+ *
+ * A valid token becomes an {@link AuthenticatedUser} in the security context without touching
+ * the database. Missing or invalid tokens leave the request anonymous, and the authorization
+ * rules in {@link SecurityConfig} turn that into a 401 where authentication is required.
+ * The stream endpoint is authenticated by a single-use ticket from {@link StreamTicketService}
+ * instead, since EventSource cannot send the header.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String STREAM_PATH = "/api/portfolios/stream";
+
+    private final JwtService jwtService;
+
+    private final StreamTicketService streamTicketService;
+
+    public JwtAuthenticationFilter(JwtService jwtService, StreamTicketService streamTicketService) {
+        this.jwtService = jwtService;
+        this.streamTicketService = streamTicketService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        AuthenticatedUser principal = authenticate(request);
+        if (principal != null) {
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                principal, null, principal.authorities()));
+            SecurityContextHolder.setContext(context);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private AuthenticatedUser authenticate(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            try {
+                return jwtService.parseToken(authorization.substring(BEARER_PREFIX.length()));
+            } catch (JwtException | IllegalArgumentException e) {
+                // Bad signature, expired or malformed: carry on unauthenticated
+                return null;
+            }
+        }
+        if (STREAM_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))) {
+            String ticket = request.getParameter("ticket");
+            return ticket == null ? null : streamTicketService.redeem(ticket);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+package com.karmooch.config;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread routing hints for {@link ReadReplicaRoutingDataSource}.
+ *
+ * Read-only transactions go to the replica unless the current thread asked for the primary,
+ * or the authenticated user of the current request committed a write within the
+ * read-your-writes window, so they do not read back their own change from a lagging replica.
+ * Users are told apart by the id in their token, so every token and session of a user
+ * shares the window.
+ */
+public final class ReadReplicaRouting {
+
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private static final ThreadLocal<Integer> primaryDepth = ThreadLocal.withInitial(() -> 0);
+    private static final ConcurrentHashMap<Long, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    private static volatile long stickinessNanos;
+
+    private ReadReplicaRouting() {
+    }
+
+    static void setStickinessNanos(long nanos) {
+        stickinessNanos = nanos;
+    }
+
+    /**
+     * The user the security context of the current thread was authenticated as, if any
+     */
+    static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.userId();
+        }
+        return null;
+    }
+
+    /**
+     * Run work whose reads must see the latest committed state, such as loads that get cached
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        primaryDepth.set(primaryDepth.get() + 1);
+        try {
+            return work.get();
+        } finally {
+            int depth = primaryDepth.get() - 1;
+            if (depth == 0) {
+                primaryDepth.remove();
+            } else {
+                primaryDepth.set(depth);
+            }
+        }
+    }
+
+    /**
+     * Route the user's reads to the primary for the read-your-writes window
+     */
+    static void markWritten(Long userId) {
+        long now = System.nanoTime();
+        stickyUntil.put(userId, now + stickinessNanos);
+        if (stickyUntil.size() > PURGE_THRESHOLD) {
+            stickyUntil.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    static boolean isPrimaryRequired() {
+        if (primaryDepth.get() > 0) {
+            return true;
+        }
+        Long userId = currentUserId();
+        if (userId == null) {
+            return false;
+        }
+        Long until = stickyUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() < 0) {
+            stickyUntil.remove(userId, until);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package com.karmooch.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica pool and everything else to the primary.
+ *
+ * The lookup runs when a connection is first used, so it must sit behind a
+ * LazyConnectionDataSourceProxy: only then is the transaction's read-only flag already
+ * known. A read-write transaction that reaches the database makes the authenticated user
+ * sticky to the primary once it commits.
+ */
+class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            stickAfterCommit();
+            return PRIMARY;
+        }
+        return ReadReplicaRouting.isPrimaryRequired() ? PRIMARY : REPLICA;
+    }
+
+    private static void stickAfterCommit() {
+        Long userId = ReadReplicaRouting.currentUserId();
+        if (userId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ReadReplicaRouting.markWritten(userId);
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package com.karmooch.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, typically by blocking
+ * inside a synchronized block (JDBC driver, connection pool, our own monitors).
+ *
+ * Listens to the JFR jdk.VirtualThreadPinned event in-process, logs the stack of every pin
+ * longer than the threshold and counts them as jvm.virtual_threads.pinned. On Java 17 the
+ * event does not exist and nothing is reported.
+ */
+@Component
+@ConditionalOnProperty(name = "virtual-threads.pinning-audit.enabled", havingValue = "true")
+public class VirtualThreadPinningAudit {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningAudit.class);
+
+    private static final int MAX_FRAMES = 12;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${virtual-threads.pinning-audit.threshold:20ms}")
+    private Duration threshold;
+
+    private RecordingStream recordingStream;
+    private Counter pinned;
+
+    @PostConstruct
+    public void start() {
+        pinned = Counter.builder("jvm.virtual_threads.pinned")
+            .description("Virtual threads pinned to their carrier for longer than the audit threshold")
+            .register(meterRegistry);
+
+        recordingStream = new RecordingStream();
+        recordingStream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent("jdk.VirtualThreadPinned", this::report);
+        recordingStream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void report(RecordedEvent event) {
+        pinned.increment();
+
+        StringBuilder stack = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            int frames = 0;
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                if (frames++ == MAX_FRAMES) {
+                    stack.append("\n\t...");
+                    break;
+                }
+                stack.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber());
+            }
+        }
+        log.warn("Virtual thread pinned for {} ms{}", event.getDuration().toMillis(), stack);
+    }
+}
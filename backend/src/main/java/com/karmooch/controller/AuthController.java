@@ -1,12 +1,15 @@
 package com.karmooch.controller;
 
+import com.karmooch.config.AuthenticatedUser;
 import com.karmooch.dto.*;
 import com.karmooch.entity.User;
+import com.karmooch.service.JwtService;
 import com.karmooch.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -20,6 +23,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private JwtService jwtService;
+    
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
         try {
@@ -30,8 +36,7 @@ public class AuthController {
                 request.getLastName()
             );
             
-            // For now, just return a simple token (user ID as string)
-            String token = "simple-token-" + user.getId();
+            String token = jwtService.generateToken(user);
             UserDto userDto = UserDto.fromUser(user);
             
             return ResponseEntity.ok(new AuthResponse(token, userDto));
@@ -58,38 +63,23 @@ public class AuthController {
                 .body(Map.of("message", "Invalid email or password"));
         }
         
-        // For now, just return a simple token (user ID as string)
-        String token = "simple-token-" + user.getId();
+        String token = jwtService.generateToken(user);
         UserDto userDto = UserDto.fromUser(user);
         
         return ResponseEntity.ok(new AuthResponse(token, userDto));
     }
     
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String token) {
-        try {
-            // Extract user ID from simple token
-            if (!token.startsWith("Bearer simple-token-")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("message", "Invalid token"));
-            }
-            
-            String userIdStr = token.substring("Bearer simple-token-".length());
-            Long userId = Long.parseLong(userIdStr);
-            
-            Optional<User> userOptional = userService.findById(userId);
-            
-            if (userOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("message", "User not found"));
-            }
-            
-            UserDto userDto = UserDto.fromUser(userOptional.get());
-            return ResponseEntity.ok(userDto);
-            
-        } catch (Exception e) {
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser principal) {
+        // The token was verified by JwtAuthenticationFilter; the user is only read for the profile fields
+        Optional<User> userOptional = userService.findById(principal.userId());
+        
+        if (userOptional.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                .body(Map.of("message", "Invalid token"));
+                .body(Map.of("message", "User not found"));
         }
+        
+        UserDto userDto = UserDto.fromUser(userOptional.get());
+        return ResponseEntity.ok(userDto);
     }
 }
\ No newline at end of file
@@ -1,18 +1,25 @@
 package com.karmooch.controller;
 
+import com.karmooch.config.AuthenticatedUser;
 import com.karmooch.dto.*;
 import com.karmooch.entity.Investment;
 import com.karmooch.entity.Portfolio;
+import com.karmooch.service.InvestmentImportService;
 import com.karmooch.service.InvestmentService;
 import com.karmooch.service.PortfolioService;
 import com.karmooch.service.UserService;
 import com.karmooch.service.MarketDataService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +31,14 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "http://localhost:3000")
 public class InvestmentController {
     
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    
+    private static final int MAX_PAGE_SIZE = 200;
+    
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+    
     @Autowired
     private InvestmentService investmentService;
     
@@ -36,110 +51,172 @@ public class InvestmentController {
     @Autowired
     private MarketDataService marketDataService;
     
+    @Autowired
+    private InvestmentImportService investmentImportService;
+    
+    /**
+     * List a portfolio's investments, newest first unless sort=oldest.
+     * Without cursor and limit every investment is returned as a bare array, as before the
+     * endpoint was paged. Passing either pages through them instead: the response is
+     * {investments, nextCursor}, and the returned nextCursor fetches the following page; it is
+     * null on the last one. A cursor is only valid with the sort and symbol it was issued for.
+     * With envelope=false a page is returned as a bare array and the cursor in the
+     * X-Next-Cursor header.
+     */
     @GetMapping
-    public ResponseEntity<?> getPortfolioInvestments(@RequestHeader("Authorization") String token,
-                                                   @PathVariable Long portfolioId) {
+    public ResponseEntity<?> getPortfolioInvestments(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                   @PathVariable Long portfolioId,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(required = false) String symbol,
+                                                   @RequestParam(defaultValue = "newest") String sort,
+                                                   @RequestParam(defaultValue = "true") boolean envelope) {
+        Long userId = principal.userId();
+        
+        if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Access denied"));
+        }
+        
+        if (!sort.equals("newest") && !sort.equals("oldest")) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("message", "Sort must be newest or oldest"));
+        }
+        
+        boolean newestFirst = sort.equals("newest");
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(toDtos(investmentService.getInvestments(portfolioId, symbol, newestFirst)));
+        }
+        
+        Window<Investment> page;
         try {
-            Long userId = extractUserIdFromToken(token);
-            
-            if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access denied"));
-            }
-            
-            List<Investment> investments = investmentService.getInvestmentsByPortfolio(portfolioId);
-            List<InvestmentDto> investmentDtos = investments.stream()
-                .map(investment -> {
-                    BigDecimal currentPrice = marketDataService.getCurrentPrice(investment.getSymbol());
-                    return InvestmentDto.fromInvestmentWithCurrentPrice(investment, currentPrice);
-                })
-                .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(investmentDtos);
-            
-        } catch (Exception e) {
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            page = investmentService.getInvestmentPage(portfolioId, symbol, newestFirst, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
+                .body(Map.of("message", e.getMessage()));
         }
+        
+        // Only the investments on this page are priced and serialized
+        List<InvestmentDto> investmentDtos = toDtos(page.getContent());
+        
+        String nextCursor = investmentService.nextCursor(page, newestFirst, symbol);
+        if (!envelope) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (nextCursor != null) {
+                response.header(NEXT_CURSOR_HEADER, nextCursor);
+            }
+            return response.body(investmentDtos);
+        }
+        return ResponseEntity.ok(new InvestmentPageDto(investmentDtos, nextCursor));
+    }
+    
+    private List<InvestmentDto> toDtos(List<Investment> investments) {
+        Map<String, BigDecimal> currentPrices = marketDataService.getCurrentPrices(
+            investments.stream().map(Investment::getSymbol).collect(Collectors.toSet()));
+        
+        return investments.stream()
+            .map(investment -> InvestmentDto.fromInvestmentWithCurrentPrice(
+                investment, currentPrices.get(investment.getSymbol())))
+            .collect(Collectors.toList());
     }
     
     @PostMapping
-    public ResponseEntity<?> createInvestment(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> createInvestment(@AuthenticationPrincipal AuthenticatedUser principal,
                                             @PathVariable Long portfolioId,
                                             @Valid @RequestBody CreateInvestmentRequest request) {
+        Long userId = principal.userId();
+        
+        if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Access denied"));
+        }
+        
+        // Ownership check above proved the portfolio exists, so a reference is enough
+        Portfolio portfolio = portfolioService.getPortfolioReference(portfolioId);
+        Investment investment = investmentService.createInvestment(
+            portfolio,
+            request.getSymbol(),
+            request.getName(),
+            request.getShares(),
+            request.getPurchasePrice(),
+            request.getPurchaseDate()
+        );
+        
+        InvestmentDto investmentDto = InvestmentDto.fromInvestment(investment);
+        return ResponseEntity.status(HttpStatus.CREATED).body(investmentDto);
+    }
+    
+    /**
+     * Bulk import investments from a CSV (header row required) or newline-delimited JSON body.
+     * Valid rows are inserted, invalid rows and batches the database rejects are reported by line number.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importInvestments(@AuthenticationPrincipal AuthenticatedUser principal,
+                                             @PathVariable Long portfolioId,
+                                             HttpServletRequest request) {
+        Long userId = principal.userId();
+        
+        if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Access denied"));
+        }
+        
+        // Media types are case-insensitive and may carry parameters such as a charset
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(TEXT_CSV);
+        InvestmentImportService.Format format = csv
+            ? InvestmentImportService.Format.CSV
+            : InvestmentImportService.Format.JSON_LINES;
+        
         try {
-            Long userId = extractUserIdFromToken(token);
-            
-            if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access denied"));
-            }
+            InvestmentImportResultDto result = investmentImportService.importInvestments(
+                portfolioId, request.getInputStream(), format);
+            return ResponseEntity.ok(result);
             
-            Optional<Portfolio> portfolioOptional = portfolioService.getPortfolioById(portfolioId);
-            if (portfolioOptional.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            Portfolio portfolio = portfolioOptional.get();
-            Investment investment = investmentService.createInvestment(
-                portfolio,
-                request.getSymbol(),
-                request.getName(),
-                request.getShares(),
-                request.getPurchasePrice(),
-                request.getPurchaseDate()
-            );
-            
-            InvestmentDto investmentDto = InvestmentDto.fromInvestment(investment);
-            return ResponseEntity.status(HttpStatus.CREATED).body(investmentDto);
-            
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
+                .body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("message", "Failed to read import body"));
         }
     }
     
     @GetMapping("/{investmentId}")
-    public ResponseEntity<?> getInvestment(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> getInvestment(@AuthenticationPrincipal AuthenticatedUser principal,
                                          @PathVariable Long portfolioId,
                                          @PathVariable Long investmentId) {
-        try {
-            Long userId = extractUserIdFromToken(token);
-            
-            if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access denied"));
-            }
-            
-            Optional<Investment> investmentOptional = investmentService.getInvestmentById(investmentId);
-            
-            if (investmentOptional.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            // Verify the investment belongs to the specified portfolio
-            Investment investment = investmentOptional.get();
-            if (!investment.getPortfolio().getId().equals(portfolioId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Investment does not belong to this portfolio"));
-            }
-            
-            InvestmentDto investmentDto = InvestmentDto.fromInvestment(investment);
-            return ResponseEntity.ok(investmentDto);
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
+        Long userId = principal.userId();
+        
+        if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Access denied"));
         }
+        
+        Optional<Investment> investmentOptional = investmentService.getInvestmentById(investmentId);
+        
+        if (investmentOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        // Verify the investment belongs to the specified portfolio
+        Investment investment = investmentOptional.get();
+        if (!investment.getPortfolio().getId().equals(portfolioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Investment does not belong to this portfolio"));
+        }
+        
+        InvestmentDto investmentDto = InvestmentDto.fromInvestment(investment);
+        return ResponseEntity.ok(investmentDto);
     }
     
     @PutMapping("/{investmentId}")
-    public ResponseEntity<?> updateInvestment(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> updateInvestment(@AuthenticationPrincipal AuthenticatedUser principal,
                                             @PathVariable Long portfolioId,
                                             @PathVariable Long investmentId,
                                             @Valid @RequestBody CreateInvestmentRequest request) {
         try {
-            Long userId = extractUserIdFromToken(token);
+            Long userId = principal.userId();
             
             if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -160,7 +237,7 @@ public class InvestmentController {
             }
             
             Investment updatedInvestment = investmentService.updateInvestment(
-                investmentId,
+                investment,
                 request.getSymbol(),
                 request.getName(),
                 request.getShares(),
@@ -174,52 +251,34 @@ public class InvestmentController {
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("message", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
         }
     }
     
     @DeleteMapping("/{investmentId}")
-    public ResponseEntity<?> deleteInvestment(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> deleteInvestment(@AuthenticationPrincipal AuthenticatedUser principal,
                                             @PathVariable Long portfolioId,
                                             @PathVariable Long investmentId) {
-        try {
-            Long userId = extractUserIdFromToken(token);
-            
-            if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access denied"));
-            }
-            
-            Optional<Investment> investmentOptional = investmentService.getInvestmentById(investmentId);
-            
-            if (investmentOptional.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            // Verify the investment belongs to the specified portfolio
-            Investment investment = investmentOptional.get();
-            if (!investment.getPortfolio().getId().equals(portfolioId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Investment does not belong to this portfolio"));
-            }
-            
-            investmentService.deleteInvestment(investmentId);
-            return ResponseEntity.ok(Map.of("message", "Investment deleted successfully"));
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
+        Long userId = principal.userId();
+        
+        if (!portfolioService.isPortfolioOwnedByUser(portfolioId, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Access denied"));
         }
-    }
-    
-    private Long extractUserIdFromToken(String token) {
-        if (!token.startsWith("Bearer simple-token-")) {
-            throw new RuntimeException("Invalid token format");
+        
+        Optional<Investment> investmentOptional = investmentService.getInvestmentById(investmentId);
+        
+        if (investmentOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        // Verify the investment belongs to the specified portfolio
+        Investment investment = investmentOptional.get();
+        if (!investment.getPortfolio().getId().equals(portfolioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Investment does not belong to this portfolio"));
         }
         
-        String userIdStr = token.substring("Bearer simple-token-".length());
-        return Long.parseLong(userIdStr);
+        investmentService.deleteInvestment(investment);
+        return ResponseEntity.ok(Map.of("message", "Investment deleted successfully"));
     }
 }
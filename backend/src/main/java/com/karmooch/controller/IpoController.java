@@ -5,9 +5,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * IPO calendar endpoints. They return futures, so a request waiting on Finnhub
+ * does not hold a servlet thread.
+ */
 @RestController
 @RequestMapping("/api/ipo")
 @CrossOrigin(origins = "http://localhost:3000")
@@ -20,71 +25,67 @@ public class IpoController {
      * Get IPO calendar for a specific date range
      */
     @GetMapping("/calendar")
-    public ResponseEntity<?> getIpoCalendar(
+    public CompletableFuture<ResponseEntity<?>> getIpoCalendar(
             @RequestParam(required = false) String from,
             @RequestParam(required = false) String to) {
         
-        try {
-            List<FinnhubService.IpoOffering> ipoOfferings;
-            
-            if (from != null && to != null) {
-                ipoOfferings = finnhubService.getIpoCalendar(from, to);
-            } else {
-                // Default to next 30 days if no date range specified
-                ipoOfferings = finnhubService.getNext30DaysIpoCalendar();
-            }
-            
-            return ResponseEntity.ok(Map.of(
-                "ipoOfferings", ipoOfferings,
-                "count", ipoOfferings.size(),
-                "source", "Finnhub API"
-            ));
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Failed to fetch IPO calendar: " + e.getMessage()));
+        CompletableFuture<FinnhubService.IpoCalendar> ipoCalendar;
+        
+        if (from != null && to != null) {
+            ipoCalendar = finnhubService.getIpoCalendar(from, to);
+        } else {
+            // Default to next 30 days if no date range specified
+            ipoCalendar = finnhubService.getNext30DaysIpoCalendar();
         }
+        
+        return ipoCalendar
+            .<ResponseEntity<?>>thenApply(calendar -> ResponseEntity.ok(Map.of(
+                "ipoOfferings", calendar.getOfferings(),
+                "count", calendar.getOfferings().size(),
+                "stale", calendar.isStale(),
+                "source", "Finnhub API"
+            )))
+            .exceptionally(e -> ResponseEntity.badRequest()
+                .body(Map.of("error", "Failed to fetch IPO calendar: " + message(e))));
     }
     
     /**
      * Get IPO calendar for the current month
      */
     @GetMapping("/calendar/current-month")
-    public ResponseEntity<?> getCurrentMonthIpoCalendar() {
-        try {
-            List<FinnhubService.IpoOffering> ipoOfferings = finnhubService.getCurrentMonthIpoCalendar();
-            
-            return ResponseEntity.ok(Map.of(
-                "ipoOfferings", ipoOfferings,
-                "count", ipoOfferings.size(),
+    public CompletableFuture<ResponseEntity<?>> getCurrentMonthIpoCalendar() {
+        return finnhubService.getCurrentMonthIpoCalendar()
+            .<ResponseEntity<?>>thenApply(calendar -> ResponseEntity.ok(Map.of(
+                "ipoOfferings", calendar.getOfferings(),
+                "count", calendar.getOfferings().size(),
                 "period", "Current Month",
+                "stale", calendar.isStale(),
                 "source", "Finnhub API"
-            ));
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Failed to fetch current month IPO calendar: " + e.getMessage()));
-        }
+            )))
+            .exceptionally(e -> ResponseEntity.badRequest()
+                .body(Map.of("error", "Failed to fetch current month IPO calendar: " + message(e))));
     }
     
     /**
      * Get IPO calendar for the next 30 days
      */
     @GetMapping("/calendar/next-30-days")
-    public ResponseEntity<?> getNext30DaysIpoCalendar() {
-        try {
-            List<FinnhubService.IpoOffering> ipoOfferings = finnhubService.getNext30DaysIpoCalendar();
-            
-            return ResponseEntity.ok(Map.of(
-                "ipoOfferings", ipoOfferings,
-                "count", ipoOfferings.size(),
+    public CompletableFuture<ResponseEntity<?>> getNext30DaysIpoCalendar() {
+        return finnhubService.getNext30DaysIpoCalendar()
+            .<ResponseEntity<?>>thenApply(calendar -> ResponseEntity.ok(Map.of(
+                "ipoOfferings", calendar.getOfferings(),
+                "count", calendar.getOfferings().size(),
                 "period", "Next 30 Days",
+                "stale", calendar.isStale(),
                 "source", "Finnhub API"
-            ));
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Failed to fetch next 30 days IPO calendar: " + e.getMessage()));
-        }
+            )))
+            .exceptionally(e -> ResponseEntity.badRequest()
+                .body(Map.of("error", "Failed to fetch next 30 days IPO calendar: " + message(e))));
+    }
+    
+    // Failures reach exceptionally() wrapped by the stage that observed them
+    private static String message(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage();
     }
 }
@@ -0,0 +1,43 @@
+package com.karmooch.controller;
+
+import com.karmooch.dto.PriceBarDto;
+import com.karmooch.service.BarResolution;
+import com.karmooch.service.PriceBarService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/market-data")
+@CrossOrigin(origins = "http://localhost:3000")
+public class MarketDataController {
+
+    @Autowired
+    private PriceBarService priceBarService;
+
+    /**
+     * Get precomputed OHLC bars for a symbol, oldest first
+     */
+    @GetMapping("/{symbol}/bars")
+    public ResponseEntity<?> getBars(@PathVariable String symbol,
+                                     @RequestParam(defaultValue = "1d") String resolution,
+                                     @RequestParam(defaultValue = "250") int limit) {
+        try {
+            BarResolution barResolution = BarResolution.fromCode(resolution);
+            List<PriceBarDto> bars = priceBarService.getBars(symbol, barResolution, limit);
+
+            return ResponseEntity.ok(Map.of(
+                "symbol", symbol.toUpperCase(),
+                "resolution", barResolution.getCode(),
+                "bars", bars
+            ));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -1,19 +1,23 @@
 package com.karmooch.controller;
 
+import com.karmooch.config.AuthenticatedUser;
 import com.karmooch.dto.*;
 import com.karmooch.entity.Portfolio;
 import com.karmooch.entity.User;
+import com.karmooch.service.PortfolioExportService;
 import com.karmooch.service.PortfolioService;
 import com.karmooch.service.UserService;
-import com.karmooch.service.MarketDataService;
+import com.karmooch.service.PortfolioValuationEngine;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -31,112 +35,105 @@ public class PortfolioController {
     private UserService userService;
     
     @Autowired
-    private MarketDataService marketDataService;
+    private PortfolioValuationEngine valuationEngine;
+    
+    @Autowired
+    private PortfolioExportService portfolioExportService;
     
     @GetMapping
-    public ResponseEntity<?> getUserPortfolios(@RequestHeader("Authorization") String token) {
-        try {
-            Long userId = extractUserIdFromToken(token);
-            List<Portfolio> portfolios = portfolioService.getPortfoliosByUser(userId);
-            
-            List<PortfolioDto> portfolioDtos = portfolios.stream()
-                .map(PortfolioDto::fromPortfolioSummary)
-                .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(portfolioDtos);
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
-        }
+    public ResponseEntity<?> getUserPortfolios(@AuthenticationPrincipal AuthenticatedUser principal) {
+        Long userId = principal.userId();
+        List<Portfolio> portfolios = portfolioService.getPortfoliosByUser(userId);
+        
+        List<PortfolioDto> portfolioDtos = portfolios.stream()
+            .map(PortfolioDto::fromPortfolioSummary)
+            .collect(Collectors.toList());
+        
+        return ResponseEntity.ok(portfolioDtos);
     }
     
     @GetMapping("/summary")
-    public ResponseEntity<?> getUserPortfolioSummaries(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getUserPortfolioSummaries(@AuthenticationPrincipal AuthenticatedUser principal) {
+        Long userId = principal.userId();
+        List<Portfolio> portfolios = portfolioService.getPortfoliosByUser(userId);
+        
+        // Totals are kept up to date by the valuation engine, so each summary is a lookup;
+        // portfolios it has not seen yet are loaded together in one query
+        Map<Long, PortfolioValuationDto> valuations = valuationEngine.getValuations(
+            portfolios.stream().map(Portfolio::getId).collect(Collectors.toList()));
+        List<PortfolioSummaryDto> portfolioSummaries = portfolios.stream()
+            .map(portfolio -> PortfolioSummaryDto.fromPortfolioWithValuation(
+                portfolio, valuations.get(portfolio.getId())))
+            .collect(Collectors.toList());
+        
+        return ResponseEntity.ok(portfolioSummaries);
+    }
+    
+    /**
+     * Download all portfolios and investments of the user as CSV or NDJSON.
+     * Rows are streamed from the database straight into the response.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportPortfolios(@AuthenticationPrincipal AuthenticatedUser principal,
+                                            @RequestParam(defaultValue = "csv") String format) {
+        Long userId = principal.userId();
+        PortfolioExportService.Format exportFormat;
         try {
-            Long userId = extractUserIdFromToken(token);
-            List<Portfolio> portfolios = portfolioService.getPortfoliosByUser(userId);
-            
-            // Collect all unique symbols from all portfolios
-            Map<String, BigDecimal> currentPrices = new HashMap<>();
-            portfolios.stream()
-                .flatMap(portfolio -> portfolio.getInvestments().stream())
-                .map(investment -> investment.getSymbol())
-                .distinct()
-                .forEach(symbol -> currentPrices.put(symbol, marketDataService.getCurrentPrice(symbol)));
-            
-            List<PortfolioSummaryDto> portfolioSummaries = portfolios.stream()
-                .map(portfolio -> PortfolioSummaryDto.fromPortfolioWithCurrentPrices(portfolio, currentPrices))
-                .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(portfolioSummaries);
-            
-        } catch (Exception e) {
+            exportFormat = PortfolioExportService.Format.fromCode(format);
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
+                .body(Map.of("message", e.getMessage()));
         }
+        
+        StreamingResponseBody body = out -> portfolioExportService.export(userId, exportFormat, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"portfolios." + exportFormat.getExtension() + "\"")
+            .body(body);
     }
     
     @PostMapping
-    public ResponseEntity<?> createPortfolio(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> createPortfolio(@AuthenticationPrincipal AuthenticatedUser principal,
                                            @Valid @RequestBody CreatePortfolioRequest request) {
-        try {
-            Long userId = extractUserIdFromToken(token);
-            Optional<User> userOptional = userService.findById(userId);
-            
-            if (userOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("message", "User not found"));
-            }
-            
-            User user = userOptional.get();
-            Portfolio portfolio = portfolioService.createPortfolio(
-                user, 
-                request.getName(), 
-                request.getDescription()
-            );
-            
-            PortfolioDto portfolioDto = PortfolioDto.fromPortfolioSummary(portfolio);
-            return ResponseEntity.status(HttpStatus.CREATED).body(portfolioDto);
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
-        }
+        // The signed token vouches for the user, so a reference is enough for the foreign key
+        User user = userService.getUserReference(principal.userId());
+        Portfolio portfolio = portfolioService.createPortfolio(
+            user, 
+            request.getName(), 
+            request.getDescription()
+        );
+        
+        PortfolioDto portfolioDto = PortfolioDto.fromPortfolioSummary(portfolio);
+        return ResponseEntity.status(HttpStatus.CREATED).body(portfolioDto);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<?> getPortfolio(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> getPortfolio(@AuthenticationPrincipal AuthenticatedUser principal,
                                         @PathVariable Long id) {
-        try {
-            Long userId = extractUserIdFromToken(token);
-            
-            if (!portfolioService.isPortfolioOwnedByUser(id, userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access denied"));
-            }
-            
-            Optional<Portfolio> portfolioOptional = portfolioService.getPortfolioById(id);
-            
-            if (portfolioOptional.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            PortfolioDto portfolioDto = PortfolioDto.fromPortfolio(portfolioOptional.get());
-            return ResponseEntity.ok(portfolioDto);
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
+        Long userId = principal.userId();
+        
+        if (!portfolioService.isPortfolioOwnedByUser(id, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Access denied"));
+        }
+        
+        Optional<Portfolio> portfolioOptional = portfolioService.getPortfolioWithInvestmentsById(id);
+        
+        if (portfolioOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+        
+        PortfolioDto portfolioDto = PortfolioDto.fromPortfolio(portfolioOptional.get());
+        return ResponseEntity.ok(portfolioDto);
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<?> updatePortfolio(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> updatePortfolio(@AuthenticationPrincipal AuthenticatedUser principal,
                                            @PathVariable Long id,
                                            @Valid @RequestBody CreatePortfolioRequest request) {
         try {
-            Long userId = extractUserIdFromToken(token);
+            Long userId = principal.userId();
             
             if (!portfolioService.isPortfolioOwnedByUser(id, userId)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -155,38 +152,20 @@ public class PortfolioController {
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("message", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
         }
     }
     
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deletePortfolio(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> deletePortfolio(@AuthenticationPrincipal AuthenticatedUser principal,
                                            @PathVariable Long id) {
-        try {
-            Long userId = extractUserIdFromToken(token);
-            
-            if (!portfolioService.isPortfolioOwnedByUser(id, userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access denied"));
-            }
-            
-            portfolioService.deletePortfolio(id);
-            return ResponseEntity.ok(Map.of("message", "Portfolio deleted successfully"));
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
-        }
-    }
-    
-    private Long extractUserIdFromToken(String token) {
-        if (!token.startsWith("Bearer simple-token-")) {
-            throw new RuntimeException("Invalid token format");
+        Long userId = principal.userId();
+        
+        if (!portfolioService.isPortfolioOwnedByUser(id, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", "Access denied"));
         }
         
-        String userIdStr = token.substring("Bearer simple-token-".length());
-        return Long.parseLong(userIdStr);
+        portfolioService.deletePortfolio(id);
+        return ResponseEntity.ok(Map.of("message", "Portfolio deleted successfully"));
     }
 }
@@ -0,0 +1,42 @@
+package com.karmooch.controller;
+
+import com.karmooch.config.AuthenticatedUser;
+import com.karmooch.service.PortfolioStreamService;
+import com.karmooch.service.StreamTicketService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/portfolios")
+@CrossOrigin(origins = "http://localhost:3000")
+public class PortfolioStreamController {
+    
+    @Autowired
+    private PortfolioStreamService portfolioStreamService;
+    
+    @Autowired
+    private StreamTicketService streamTicketService;
+    
+    /**
+     * Issue a short-lived, single-use ticket for opening the stream.
+     * EventSource cannot set headers, so the stream takes the ticket as a query parameter.
+     */
+    @PostMapping("/stream/ticket")
+    public ResponseEntity<?> issueStreamTicket(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(Map.of("ticket", streamTicketService.issue(principal)));
+    }
+    
+    /**
+     * Stream live valuations of the user's portfolios as Server-Sent Events.
+     * Open it with ?ticket= from the ticket endpoint; every connection needs a new ticket.
+     */
+    @GetMapping("/stream")
+    public SseEmitter streamPortfolioValuations(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return portfolioStreamService.subscribe(principal.userId());
+    }
+}
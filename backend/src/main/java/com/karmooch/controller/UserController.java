@@ -1,11 +1,13 @@
 package com.karmooch.controller;
 
+import com.karmooch.config.AuthenticatedUser;
 import com.karmooch.dto.*;
 import com.karmooch.entity.User;
 import com.karmooch.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -20,29 +22,23 @@ public class UserController {
     private UserService userService;
     
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile(@RequestHeader("Authorization") String token) {
-        try {
-            Long userId = extractUserIdFromToken(token);
-            Optional<User> userOptional = userService.findById(userId);
-            
-            if (userOptional.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            UserDto userDto = UserDto.fromUser(userOptional.get());
-            return ResponseEntity.ok(userDto);
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
+    public ResponseEntity<?> getProfile(@AuthenticationPrincipal AuthenticatedUser principal) {
+        Long userId = principal.userId();
+        Optional<User> userOptional = userService.findById(userId);
+        
+        if (userOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+        
+        UserDto userDto = UserDto.fromUser(userOptional.get());
+        return ResponseEntity.ok(userDto);
     }
     
     @PutMapping("/profile")
-    public ResponseEntity<?> updateProfile(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> updateProfile(@AuthenticationPrincipal AuthenticatedUser principal,
                                          @Valid @RequestBody UpdateProfileRequest request) {
         try {
-            Long userId = extractUserIdFromToken(token);
+            Long userId = principal.userId();
             Optional<User> userOptional = userService.findById(userId);
             
             if (userOptional.isEmpty()) {
@@ -63,17 +59,14 @@ public class UserController {
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("message", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
         }
     }
     
     @PutMapping("/change-password")
-    public ResponseEntity<?> changePassword(@RequestHeader("Authorization") String token,
+    public ResponseEntity<?> changePassword(@AuthenticationPrincipal AuthenticatedUser principal,
                                           @Valid @RequestBody ChangePasswordRequest request) {
         try {
-            Long userId = extractUserIdFromToken(token);
+            Long userId = principal.userId();
             Optional<User> userOptional = userService.findById(userId);
             
             if (userOptional.isEmpty()) {
@@ -88,18 +81,6 @@ public class UserController {
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("message", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("message", "Invalid token"));
         }
     }
-    
-    private Long extractUserIdFromToken(String token) {
-        if (!token.startsWith("Bearer simple-token-")) {
-            throw new RuntimeException("Invalid token format");
-        }
-        
-        String userIdStr = token.substring("Bearer simple-token-".length());
-        return Long.parseLong(userIdStr);
-    }
 }
@@ -1,6 +1,7 @@
 package com.karmooch.dto;
 
 import com.karmooch.entity.Investment;
+import com.karmooch.util.FixedPoint;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -75,6 +76,29 @@ public class InvestmentDto {
     
     // Static factory method with current market price
     public static InvestmentDto fromInvestmentWithCurrentPrice(Investment investment, BigDecimal currentMarketPrice) {
+        try {
+            long shares = FixedPoint.unscaled(investment.getShares(), FixedPoint.SHARES_SCALE);
+            long totalCost = FixedPoint.amount(shares,
+                FixedPoint.unscaled(investment.getPurchasePrice(), FixedPoint.PRICE_SCALE));
+            long currentValue = FixedPoint.amount(shares,
+                FixedPoint.unscaled(currentMarketPrice, FixedPoint.PRICE_SCALE));
+            long gainLoss = FixedPoint.subtract(currentValue, totalCost);
+            
+            return withValuation(
+                investment,
+                currentMarketPrice,
+                FixedPoint.toBigDecimal(currentValue, FixedPoint.AMOUNT_SCALE),
+                FixedPoint.toBigDecimal(totalCost, FixedPoint.AMOUNT_SCALE),
+                FixedPoint.toBigDecimal(gainLoss, FixedPoint.AMOUNT_SCALE),
+                FixedPoint.percentage(gainLoss, totalCost)
+            );
+        } catch (ArithmeticException e) {
+            // Not at column scale or too large for a long; compute with BigDecimal instead
+            return fromInvestmentWithCurrentPriceExact(investment, currentMarketPrice);
+        }
+    }
+    
+    private static InvestmentDto fromInvestmentWithCurrentPriceExact(Investment investment, BigDecimal currentMarketPrice) {
         BigDecimal totalCost = investment.getShares().multiply(investment.getPurchasePrice());
         BigDecimal currentValue = investment.getShares().multiply(currentMarketPrice);
         
@@ -83,6 +107,12 @@ public class InvestmentDto {
             ? gainLoss.divide(totalCost, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100))
             : BigDecimal.ZERO;
         
+        return withValuation(investment, currentMarketPrice, currentValue, totalCost, gainLoss, gainLossPercentage);
+    }
+    
+    private static InvestmentDto withValuation(Investment investment, BigDecimal currentMarketPrice,
+                                               BigDecimal currentValue, BigDecimal totalCost,
+                                               BigDecimal gainLoss, BigDecimal gainLossPercentage) {
         return new InvestmentDto(
             investment.getId(),
             investment.getSymbol(),
@@ -0,0 +1,101 @@
+package com.karmooch.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InvestmentImportResultDto {
+    
+    private int imported;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    
+    // Constructors
+    public InvestmentImportResultDto() {}
+    
+    /**
+     * Record a rejected row; only the first maxReportedErrors are listed individually
+     */
+    public void addError(long line, String message, int maxReportedErrors) {
+        failed++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new RowError(line, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+    
+    /**
+     * Record a batch of valid rows, read from firstLine to lastLine, that the database rejected
+     */
+    public void addFailedBatch(long firstLine, long lastLine, int rows, String message, int maxReportedErrors) {
+        addError(firstLine, "Rows on lines " + firstLine + "-" + lastLine + " were not imported: " + message,
+            maxReportedErrors);
+        failed += rows - 1;
+    }
+    
+    public void addImported(int count) {
+        imported += count;
+    }
+    
+    // Getters and Setters
+    public int getImported() {
+        return imported;
+    }
+    
+    public void setImported(int imported) {
+        this.imported = imported;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+    
+    public List<RowError> getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+    
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+    
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+    
+    public static class RowError {
+        private long line;
+        private String message;
+        
+        public RowError() {}
+        
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+        
+        public long getLine() {
+            return line;
+        }
+        
+        public void setLine(long line) {
+            this.line = line;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.karmooch.dto;
+
+import java.util.List;
+
+public class InvestmentPageDto {
+    
+    private List<InvestmentDto> investments;
+    private String nextCursor;
+    
+    // Constructors
+    public InvestmentPageDto() {}
+    
+    public InvestmentPageDto(List<InvestmentDto> investments, String nextCursor) {
+        this.investments = investments;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters and Setters
+    public List<InvestmentDto> getInvestments() {
+        return investments;
+    }
+    
+    public void setInvestments(List<InvestmentDto> investments) {
+        this.investments = investments;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
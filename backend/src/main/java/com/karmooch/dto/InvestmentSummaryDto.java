@@ -1,6 +1,7 @@
 package com.karmooch.dto;
 
 import com.karmooch.entity.Investment;
+import com.karmooch.util.FixedPoint;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -38,29 +39,47 @@ public class InvestmentSummaryDto {
     
     // Static factory method to create from Investment entity
     public static InvestmentSummaryDto fromInvestment(Investment investment) {
-        BigDecimal totalCost = investment.getShares().multiply(investment.getPurchasePrice());
+        BigDecimal totalCost;
+        try {
+            totalCost = FixedPoint.toBigDecimal(FixedPoint.amount(
+                FixedPoint.unscaled(investment.getShares(), FixedPoint.SHARES_SCALE),
+                FixedPoint.unscaled(investment.getPurchasePrice(), FixedPoint.PRICE_SCALE)), FixedPoint.AMOUNT_SCALE);
+        } catch (ArithmeticException e) {
+            totalCost = investment.getShares().multiply(investment.getPurchasePrice());
+        }
         
         // This will be set by the service layer with real current market price
         BigDecimal currentValue = BigDecimal.ZERO;
         BigDecimal gainLoss = BigDecimal.ZERO;
         BigDecimal gainLossPercentage = BigDecimal.ZERO;
         
-        return new InvestmentSummaryDto(
-            investment.getId(),
-            investment.getSymbol(),
-            investment.getName(),
-            investment.getShares(),
-            investment.getPurchasePrice(),
-            investment.getPurchaseDate(),
-            currentValue,
-            totalCost,
-            gainLoss,
-            gainLossPercentage
-        );
+        return withValuation(investment, currentValue, totalCost, gainLoss, gainLossPercentage);
     }
     
     // Static factory method with current market price
     public static InvestmentSummaryDto fromInvestmentWithCurrentPrice(Investment investment, BigDecimal currentMarketPrice) {
+        try {
+            long shares = FixedPoint.unscaled(investment.getShares(), FixedPoint.SHARES_SCALE);
+            long totalCost = FixedPoint.amount(shares,
+                FixedPoint.unscaled(investment.getPurchasePrice(), FixedPoint.PRICE_SCALE));
+            long currentValue = FixedPoint.amount(shares,
+                FixedPoint.unscaled(currentMarketPrice, FixedPoint.PRICE_SCALE));
+            long gainLoss = FixedPoint.subtract(currentValue, totalCost);
+            
+            return withValuation(
+                investment,
+                FixedPoint.toBigDecimal(currentValue, FixedPoint.AMOUNT_SCALE),
+                FixedPoint.toBigDecimal(totalCost, FixedPoint.AMOUNT_SCALE),
+                FixedPoint.toBigDecimal(gainLoss, FixedPoint.AMOUNT_SCALE),
+                FixedPoint.percentage(gainLoss, totalCost)
+            );
+        } catch (ArithmeticException e) {
+            // Not at column scale or too large for a long; compute with BigDecimal instead
+            return fromInvestmentWithCurrentPriceExact(investment, currentMarketPrice);
+        }
+    }
+    
+    private static InvestmentSummaryDto fromInvestmentWithCurrentPriceExact(Investment investment, BigDecimal currentMarketPrice) {
         BigDecimal totalCost = investment.getShares().multiply(investment.getPurchasePrice());
         BigDecimal currentValue = investment.getShares().multiply(currentMarketPrice);
         
@@ -69,6 +88,12 @@ public class InvestmentSummaryDto {
             ? gainLoss.divide(totalCost, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100))
             : BigDecimal.ZERO;
         
+        return withValuation(investment, currentValue, totalCost, gainLoss, gainLossPercentage);
+    }
+    
+    private static InvestmentSummaryDto withValuation(Investment investment, BigDecimal currentValue,
+                                                      BigDecimal totalCost, BigDecimal gainLoss,
+                                                      BigDecimal gainLossPercentage) {
         return new InvestmentSummaryDto(
             investment.getId(),
             investment.getSymbol(),
@@ -0,0 +1,72 @@
+package com.karmooch.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One investment of a portfolio as a flat export row; investment fields are null
+ * for a portfolio without investments
+ */
+public class PortfolioExportRow {
+    
+    private final Long portfolioId;
+    private final String portfolioName;
+    private final String portfolioDescription;
+    private final Long investmentId;
+    private final String symbol;
+    private final String name;
+    private final BigDecimal shares;
+    private final BigDecimal purchasePrice;
+    private final LocalDate purchaseDate;
+    
+    public PortfolioExportRow(Long portfolioId, String portfolioName, String portfolioDescription,
+                              Long investmentId, String symbol, String name, BigDecimal shares,
+                              BigDecimal purchasePrice, LocalDate purchaseDate) {
+        this.portfolioId = portfolioId;
+        this.portfolioName = portfolioName;
+        this.portfolioDescription = portfolioDescription;
+        this.investmentId = investmentId;
+        this.symbol = symbol;
+        this.name = name;
+        this.shares = shares;
+        this.purchasePrice = purchasePrice;
+        this.purchaseDate = purchaseDate;
+    }
+    
+    // Getters
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+    
+    public String getPortfolioName() {
+        return portfolioName;
+    }
+    
+    public String getPortfolioDescription() {
+        return portfolioDescription;
+    }
+    
+    public Long getInvestmentId() {
+        return investmentId;
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public BigDecimal getShares() {
+        return shares;
+    }
+    
+    public BigDecimal getPurchasePrice() {
+        return purchasePrice;
+    }
+    
+    public LocalDate getPurchaseDate() {
+        return purchaseDate;
+    }
+}
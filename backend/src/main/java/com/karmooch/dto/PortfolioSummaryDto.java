@@ -1,8 +1,10 @@
 package com.karmooch.dto;
 
 import com.karmooch.entity.Portfolio;
+import com.karmooch.util.FixedPoint;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -40,43 +42,41 @@ public class PortfolioSummaryDto {
     
     // Static factory method to create from Portfolio entity
     public static PortfolioSummaryDto fromPortfolio(Portfolio portfolio) {
-        // Calculate totals from investments
+        // Valued at purchase price; this will be updated by the service layer with real current market prices
+        return fromPortfolioWithCurrentPrices(portfolio, Collections.emptyMap());
+    }
+    
+    // Static factory method with current market prices
+    public static PortfolioSummaryDto fromPortfolioWithCurrentPrices(Portfolio portfolio, Map<String, BigDecimal> currentPrices) {
         int investmentCount = portfolio.getInvestments() != null ? portfolio.getInvestments().size() : 0;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        BigDecimal totalValue = BigDecimal.ZERO;
+        long totalCost = 0;
+        long totalValue = 0;
         
-        if (portfolio.getInvestments() != null) {
-            for (var investment : portfolio.getInvestments()) {
-                BigDecimal cost = investment.getShares().multiply(investment.getPurchasePrice());
-                totalCost = totalCost.add(cost);
-                
-                // This will be updated by the service layer with real current market prices
-                BigDecimal currentValue = investment.getShares().multiply(investment.getPurchasePrice());
-                totalValue = totalValue.add(currentValue);
+        try {
+            if (portfolio.getInvestments() != null) {
+                for (var investment : portfolio.getInvestments()) {
+                    long shares = FixedPoint.unscaled(investment.getShares(), FixedPoint.SHARES_SCALE);
+                    long purchasePrice = FixedPoint.unscaled(investment.getPurchasePrice(), FixedPoint.PRICE_SCALE);
+                    totalCost = FixedPoint.add(totalCost, FixedPoint.amount(shares, purchasePrice));
+                    
+                    // Use current market price if available, otherwise use purchase price
+                    BigDecimal currentPrice = currentPrices.get(investment.getSymbol());
+                    long price = currentPrice != null
+                        ? FixedPoint.unscaled(currentPrice, FixedPoint.PRICE_SCALE)
+                        : purchasePrice;
+                    totalValue = FixedPoint.add(totalValue, FixedPoint.amount(shares, price));
+                }
             }
+        } catch (ArithmeticException e) {
+            // Not at column scale or too large for a long; compute with BigDecimal instead
+            return fromPortfolioWithCurrentPricesExact(portfolio, currentPrices);
         }
         
-        BigDecimal totalGainLoss = totalValue.subtract(totalCost);
-        BigDecimal totalGainLossPercentage = totalCost.compareTo(BigDecimal.ZERO) > 0 
-            ? totalGainLoss.divide(totalCost, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100))
-            : BigDecimal.ZERO;
-        
-        return new PortfolioSummaryDto(
-            portfolio.getId(),
-            portfolio.getName(),
-            portfolio.getDescription(),
-            portfolio.getCreatedAt(),
-            portfolio.getUpdatedAt(),
-            investmentCount,
-            totalValue,
-            totalCost,
-            totalGainLoss,
-            totalGainLossPercentage
-        );
+        return fromPortfolioWithValuation(portfolio,
+            PortfolioValuationDto.fromFixedPoint(portfolio.getId(), investmentCount, totalValue, totalCost));
     }
     
-    // Static factory method with current market prices
-    public static PortfolioSummaryDto fromPortfolioWithCurrentPrices(Portfolio portfolio, Map<String, BigDecimal> currentPrices) {
+    private static PortfolioSummaryDto fromPortfolioWithCurrentPricesExact(Portfolio portfolio, Map<String, BigDecimal> currentPrices) {
         int investmentCount = portfolio.getInvestments() != null ? portfolio.getInvestments().size() : 0;
         BigDecimal totalCost = BigDecimal.ZERO;
         BigDecimal totalValue = BigDecimal.ZERO;
@@ -93,22 +93,23 @@ public class PortfolioSummaryDto {
             }
         }
         
-        BigDecimal totalGainLoss = totalValue.subtract(totalCost);
-        BigDecimal totalGainLossPercentage = totalCost.compareTo(BigDecimal.ZERO) > 0 
-            ? totalGainLoss.divide(totalCost, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100))
-            : BigDecimal.ZERO;
-        
+        return fromPortfolioWithValuation(portfolio,
+            PortfolioValuationDto.fromTotals(portfolio.getId(), investmentCount, totalValue, totalCost));
+    }
+    
+    // Static factory method from precomputed valuation totals
+    public static PortfolioSummaryDto fromPortfolioWithValuation(Portfolio portfolio, PortfolioValuationDto valuation) {
         return new PortfolioSummaryDto(
             portfolio.getId(),
             portfolio.getName(),
             portfolio.getDescription(),
             portfolio.getCreatedAt(),
             portfolio.getUpdatedAt(),
-            investmentCount,
-            totalValue,
-            totalCost,
-            totalGainLoss,
-            totalGainLossPercentage
+            valuation.getInvestmentCount(),
+            valuation.getTotalValue(),
+            valuation.getTotalCost(),
+            valuation.getTotalGainLoss(),
+            valuation.getTotalGainLossPercentage()
         );
     }
     
@@ -0,0 +1,106 @@
+package com.karmooch.dto;
+
+import com.karmooch.util.FixedPoint;
+
+import java.math.BigDecimal;
+
+public class PortfolioValuationDto {
+    
+    private Long portfolioId;
+    private int investmentCount;
+    private BigDecimal totalValue;
+    private BigDecimal totalCost;
+    private BigDecimal totalGainLoss;
+    private BigDecimal totalGainLossPercentage;
+    
+    // Constructors
+    public PortfolioValuationDto() {}
+    
+    public PortfolioValuationDto(Long portfolioId, int investmentCount, BigDecimal totalValue, BigDecimal totalCost,
+                                 BigDecimal totalGainLoss, BigDecimal totalGainLossPercentage) {
+        this.portfolioId = portfolioId;
+        this.investmentCount = investmentCount;
+        this.totalValue = totalValue;
+        this.totalCost = totalCost;
+        this.totalGainLoss = totalGainLoss;
+        this.totalGainLossPercentage = totalGainLossPercentage;
+    }
+    
+    // Static factory method from portfolio totals
+    public static PortfolioValuationDto fromTotals(Long portfolioId, int investmentCount,
+                                                   BigDecimal totalValue, BigDecimal totalCost) {
+        BigDecimal totalGainLoss = totalValue.subtract(totalCost);
+        BigDecimal totalGainLossPercentage = totalCost.compareTo(BigDecimal.ZERO) > 0 
+            ? totalGainLoss.divide(totalCost, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100))
+            : BigDecimal.ZERO;
+        
+        return new PortfolioValuationDto(portfolioId, investmentCount, totalValue, totalCost, totalGainLoss, totalGainLossPercentage);
+    }
+    
+    // Static factory method from fixed-point totals at amount scale; BigDecimal is only created here
+    public static PortfolioValuationDto fromFixedPoint(Long portfolioId, int investmentCount,
+                                                       long totalValue, long totalCost) {
+        if (investmentCount == 0) {
+            return fromTotals(portfolioId, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        
+        long totalGainLoss = FixedPoint.subtract(totalValue, totalCost);
+        return new PortfolioValuationDto(
+            portfolioId,
+            investmentCount,
+            FixedPoint.toBigDecimal(totalValue, FixedPoint.AMOUNT_SCALE),
+            FixedPoint.toBigDecimal(totalCost, FixedPoint.AMOUNT_SCALE),
+            FixedPoint.toBigDecimal(totalGainLoss, FixedPoint.AMOUNT_SCALE),
+            FixedPoint.percentage(totalGainLoss, totalCost)
+        );
+    }
+    
+    // Getters and Setters
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+    
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+    
+    public int getInvestmentCount() {
+        return investmentCount;
+    }
+    
+    public void setInvestmentCount(int investmentCount) {
+        this.investmentCount = investmentCount;
+    }
+    
+    public BigDecimal getTotalValue() {
+        return totalValue;
+    }
+    
+    public void setTotalValue(BigDecimal totalValue) {
+        this.totalValue = totalValue;
+    }
+    
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+    
+    public void setTotalCost(BigDecimal totalCost) {
+        this.totalCost = totalCost;
+    }
+    
+    public BigDecimal getTotalGainLoss() {
+        return totalGainLoss;
+    }
+    
+    public void setTotalGainLoss(BigDecimal totalGainLoss) {
+        this.totalGainLoss = totalGainLoss;
+    }
+    
+    public BigDecimal getTotalGainLossPercentage() {
+        return totalGainLossPercentage;
+    }
+    
+    public void setTotalGainLossPercentage(BigDecimal totalGainLossPercentage) {
+        this.totalGainLossPercentage = totalGainLossPercentage;
+    }
+}
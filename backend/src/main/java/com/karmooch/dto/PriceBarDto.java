@@ -0,0 +1,75 @@
+package com.karmooch.dto;
+
+import java.math.BigDecimal;
+
+public class PriceBarDto {
+    
+    private long timestamp;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private long volume;
+    
+    // Constructors
+    public PriceBarDto() {}
+    
+    public PriceBarDto(long timestamp, BigDecimal open, BigDecimal high, BigDecimal low,
+                       BigDecimal close, long volume) {
+        this.timestamp = timestamp;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+    
+    // Getters and Setters
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    public BigDecimal getOpen() {
+        return open;
+    }
+    
+    public void setOpen(BigDecimal open) {
+        this.open = open;
+    }
+    
+    public BigDecimal getHigh() {
+        return high;
+    }
+    
+    public void setHigh(BigDecimal high) {
+        this.high = high;
+    }
+    
+    public BigDecimal getLow() {
+        return low;
+    }
+    
+    public void setLow(BigDecimal low) {
+        this.low = low;
+    }
+    
+    public BigDecimal getClose() {
+        return close;
+    }
+    
+    public void setClose(BigDecimal close) {
+        this.close = close;
+    }
+    
+    public long getVolume() {
+        return volume;
+    }
+    
+    public void setVolume(long volume) {
+        this.volume = volume;
+    }
+}
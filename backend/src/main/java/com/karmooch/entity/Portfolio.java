@@ -3,6 +3,8 @@ package com.karmooch.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -14,6 +16,8 @@ import java.util.List;
 @Entity
 @Table(name = "portfolios")
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "portfolios")
 public class Portfolio {
     
     @Id
@@ -40,6 +44,7 @@ public class Portfolio {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
     
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "portfolio-investments")
     @OneToMany(mappedBy = "portfolio", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Investment> investments = new ArrayList<>();
     
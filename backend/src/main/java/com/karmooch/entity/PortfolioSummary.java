@@ -0,0 +1,46 @@
+package com.karmooch.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Investment count and total cost of a portfolio, maintained by database triggers
+ * on investments. Read-only on the application side.
+ */
+@Entity
+@Immutable
+@Table(name = "portfolio_summaries")
+public class PortfolioSummary {
+    
+    @Id
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+    
+    @Column(nullable = false)
+    private int investmentCount;
+    
+    @Column(nullable = false, precision = 30, scale = 8)
+    private BigDecimal totalCost;
+    
+    private LocalDateTime updatedAt;
+    
+    // Getters
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+    
+    public int getInvestmentCount() {
+        return investmentCount;
+    }
+    
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,75 @@
+package com.karmooch.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Total shares of one symbol in a portfolio across all its investment lots, maintained
+ * by database triggers on investments. Read-only on the application side.
+ */
+@Entity
+@Immutable
+@Table(name = "portfolio_summary_positions")
+@IdClass(PortfolioSummaryPosition.Key.class)
+public class PortfolioSummaryPosition {
+    
+    @Id
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+    
+    @Id
+    @Column(length = 20)
+    private String symbol;
+    
+    @Column(nullable = false, precision = 21, scale = 6)
+    private BigDecimal shares;
+    
+    @Column(nullable = false)
+    private int lotCount;
+    
+    // Getters
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public BigDecimal getShares() {
+        return shares;
+    }
+    
+    public int getLotCount() {
+        return lotCount;
+    }
+    
+    public static class Key implements Serializable {
+        private Long portfolioId;
+        private String symbol;
+        
+        public Key() {}
+        
+        public Key(Long portfolioId, String symbol) {
+            this.portfolioId = portfolioId;
+            this.symbol = symbol;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(portfolioId, key.portfolioId) && Objects.equals(symbol, key.symbol);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(portfolioId, symbol);
+        }
+    }
+}
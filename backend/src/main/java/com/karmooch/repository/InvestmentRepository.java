@@ -1,9 +1,14 @@
 package com.karmooch.repository;
 
 import com.karmooch.entity.Investment;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,7 +16,19 @@ public interface InvestmentRepository extends JpaRepository<Investment, Long> {
     
     List<Investment> findByPortfolioId(Long portfolioId);
     
+    List<Investment> findByPortfolioIdIn(Collection<Long> portfolioIds);
+    
     List<Investment> findByPortfolioIdOrderByCreatedAtDesc(Long portfolioId);
     
     List<Investment> findBySymbol(String symbol);
+    
+    List<Investment> findByPortfolioId(Long portfolioId, Sort sort);
+    
+    List<Investment> findByPortfolioIdAndSymbolIgnoreCase(Long portfolioId, String symbol, Sort sort);
+    
+    // Keyset pages on (created_at, id); the position holds the last row of the previous page
+    Window<Investment> findByPortfolioId(Long portfolioId, KeysetScrollPosition position, Sort sort, Limit limit);
+    
+    Window<Investment> findByPortfolioIdAndSymbolIgnoreCase(Long portfolioId, String symbol,
+                                                           KeysetScrollPosition position, Sort sort, Limit limit);
 }
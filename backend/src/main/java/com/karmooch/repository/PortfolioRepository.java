@@ -1,10 +1,19 @@
 package com.karmooch.repository;
 
+import com.karmooch.dto.PortfolioExportRow;
 import com.karmooch.entity.Portfolio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
@@ -12,4 +21,24 @@ public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     List<Portfolio> findByUserId(Long userId);
     
     List<Portfolio> findByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    // Ownership check as an id-only existence query, without loading the portfolio row
+    boolean existsByIdAndUserId(Long id, Long userId);
+    
+    // Portfolios with their investments joined in, instead of one query per portfolio
+    @EntityGraph(attributePaths = "investments")
+    List<Portfolio> findWithInvestmentsByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    @EntityGraph(attributePaths = "investments")
+    Optional<Portfolio> findWithInvestmentsById(Long id);
+    
+    // Flat rows for export, read through a forward-only cursor; must be consumed inside a
+    // transaction so the driver fetches in chunks instead of buffering the whole result
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.karmooch.dto.PortfolioExportRow("
+        + "p.id, p.name, p.description, i.id, i.symbol, i.name, i.shares, i.purchasePrice, i.purchaseDate) "
+        + "FROM Portfolio p LEFT JOIN p.investments i "
+        + "WHERE p.user.id = :userId "
+        + "ORDER BY p.createdAt DESC, p.id, i.id")
+    Stream<PortfolioExportRow> streamExportRowsByUserId(@Param("userId") Long userId);
 }
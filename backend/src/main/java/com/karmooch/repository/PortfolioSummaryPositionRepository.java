@@ -0,0 +1,16 @@
+package com.karmooch.repository;
+
+import com.karmooch.entity.PortfolioSummaryPosition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PortfolioSummaryPositionRepository extends JpaRepository<PortfolioSummaryPosition, PortfolioSummaryPosition.Key> {
+    
+    List<PortfolioSummaryPosition> findByPortfolioId(Long portfolioId);
+    
+    List<PortfolioSummaryPosition> findByPortfolioIdIn(Collection<Long> portfolioIds);
+}
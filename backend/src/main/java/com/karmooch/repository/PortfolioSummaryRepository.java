@@ -0,0 +1,9 @@
+package com.karmooch.repository;
+
+import com.karmooch.entity.PortfolioSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PortfolioSummaryRepository extends JpaRepository<PortfolioSummary, Long> {
+}
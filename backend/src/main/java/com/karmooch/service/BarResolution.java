@@ -0,0 +1,58 @@
+package com.karmooch.service;
+
+/**
+ * Bar sizes maintained by {@link PriceBarService}, with how many bars of each are kept in memory.
+ * Closed bars of persisted resolutions are written to disk, because their window is longer
+ * than the tick history that is replayed on startup.
+ */
+public enum BarResolution {
+    
+    ONE_MINUTE("1m", 60_000L, 1_440, false),           // 1 day
+    FIVE_MINUTES("5m", 5 * 60_000L, 2_016, false),     // 1 week
+    ONE_HOUR("1h", 60 * 60_000L, 2_160, true),         // 90 days
+    ONE_DAY("1d", 24 * 60 * 60_000L, 1_830, true);     // 5 years
+    
+    private final String code;
+    private final long millis;
+    private final int capacity;
+    private final boolean persisted;
+    
+    BarResolution(String code, long millis, int capacity, boolean persisted) {
+        this.code = code;
+        this.millis = millis;
+        this.capacity = capacity;
+        this.persisted = persisted;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public long getMillis() {
+        return millis;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public boolean isPersisted() {
+        return persisted;
+    }
+    
+    /**
+     * Start of the bar that contains the given epoch millisecond timestamp (UTC aligned)
+     */
+    public long bucketStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, millis);
+    }
+    
+    public static BarResolution fromCode(String code) {
+        for (BarResolution resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown resolution: " + code);
+    }
+}
@@ -1,15 +1,31 @@
 package com.karmooch.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karmooch.util.CircuitBreaker;
+import com.karmooch.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class FinnhubService {
@@ -20,77 +36,266 @@ public class FinnhubService {
     @Value("${finnhub.api.key:d2qlms9r01qn21mk39i0d2qlms9r01qn21mk39ig}")
     private String apiKey;
     
-    private final RestTemplate restTemplate;
+    @Value("${finnhub.ipo-cache.expire-after-write:6h}")
+    private Duration ipoCacheExpireAfterWrite;
+    
+    @Value("${finnhub.ipo-cache.refresh-after-write:15m}")
+    private Duration ipoCacheRefreshAfterWrite;
+    
+    @Value("${finnhub.ipo-cache.maximum-days:1830}")
+    private long ipoCacheMaximumDays;
+    
+    @Value("${finnhub.rate-limit.permits-per-minute:60}")
+    private long rateLimitPermitsPerMinute;
+    
+    @Value("${finnhub.rate-limit.burst:10}")
+    private long rateLimitBurst;
+    
+    @Value("${finnhub.circuit-breaker.window-size:20}")
+    private int circuitBreakerWindowSize;
+    
+    @Value("${finnhub.circuit-breaker.minimum-calls:5}")
+    private int circuitBreakerMinimumCalls;
+    
+    @Value("${finnhub.circuit-breaker.failure-rate-threshold:0.5}")
+    private double circuitBreakerFailureRateThreshold;
+    
+    @Value("${finnhub.circuit-breaker.open-duration:30s}")
+    private Duration circuitBreakerOpenDuration;
+    
+    @Autowired
+    private UpstreamHttpClient upstreamHttpClient;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     private final ObjectMapper objectMapper;
     
+    // Keeps us within the Finnhub plan, and stops calling it while it keeps failing
+    private TokenBucket rateLimiter;
+    private CircuitBreaker circuitBreaker;
+    
+    private Counter permitsAcquired;
+    private Counter permitsRejected;
+    private Counter callsSucceeded;
+    private Counter callsFailed;
+    private Counter callsNotPermitted;
+    private Counter staleResponses;
+    
+    // Offerings by date plus the ranges already fetched, so overlapping windows share data
+    private IpoCalendarStore ipoCalendarStore;
+    
+    // One upstream call per missing range at a time; concurrent requests wait on the same fetch
+    private final ConcurrentHashMap<IpoCalendarStore.DateRange, CompletableFuture<Void>> ipoFetchesInFlight = new ConcurrentHashMap<>();
+    
     public FinnhubService() {
-        this.restTemplate = new RestTemplate();
         this.objectMapper = new ObjectMapper();
     }
     
+    @PostConstruct
+    public void init() {
+        ipoCalendarStore = new IpoCalendarStore(ipoCacheMaximumDays);
+        rateLimiter = new TokenBucket(rateLimitBurst, rateLimitPermitsPerMinute, Duration.ofMinutes(1));
+        circuitBreaker = new CircuitBreaker(circuitBreakerWindowSize, circuitBreakerMinimumCalls,
+            circuitBreakerFailureRateThreshold, circuitBreakerOpenDuration);
+        
+        Gauge.builder("upstream.rate_limiter.available_permits", rateLimiter, TokenBucket::availablePermits)
+            .tag("upstream", "finnhub")
+            .register(meterRegistry);
+        Gauge.builder("upstream.circuit_breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+            .description("0 closed, 1 open, 2 half-open")
+            .tag("upstream", "finnhub")
+            .register(meterRegistry);
+        
+        permitsAcquired = upstreamCounter("upstream.rate_limiter.permits", "result", "acquired");
+        permitsRejected = upstreamCounter("upstream.rate_limiter.permits", "result", "rejected");
+        callsSucceeded = upstreamCounter("upstream.circuit_breaker.calls", "outcome", "success");
+        callsFailed = upstreamCounter("upstream.circuit_breaker.calls", "outcome", "failure");
+        callsNotPermitted = upstreamCounter("upstream.circuit_breaker.calls", "outcome", "not_permitted");
+        staleResponses = upstreamCounter("upstream.stale_responses", "endpoint", "ipo_calendar");
+    }
+    
     /**
-     * Get IPO calendar for a specific date range
+     * Get IPO calendar for a specific date range without blocking the caller.
+     * Only the parts of the range that were never fetched or have expired are requested from
+     * Finnhub; parts older than refresh-after-write are served as-is and reloaded in the background.
+     * If Finnhub cannot be reached, is rate limited or the circuit is open, the last good data
+     * for the range is returned and flagged as stale.
      * @param from Start date (YYYY-MM-DD format)
      * @param to End date (YYYY-MM-DD format)
-     * @return List of IPO offerings
+     * @return IPO offerings in the range, completed straight away when nothing has to be fetched;
+     *         failed with IllegalArgumentException if the range ends before it starts
      */
-    public List<IpoOffering> getIpoCalendar(String from, String to) {
+    public CompletableFuture<IpoCalendar> getIpoCalendar(String from, String to) {
+        LocalDate start;
+        LocalDate end;
         try {
-            String url = String.format("%s%s?from=%s&to=%s&token=%s", 
-                FINNHUB_BASE_URL, IPO_CALENDAR_ENDPOINT, from, to, apiKey);
-            
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode rootNode = objectMapper.readTree(response);
+            start = LocalDate.parse(from);
+            end = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            System.err.println("Error fetching IPO calendar: " + e.getMessage());
+            return CompletableFuture.completedFuture(new IpoCalendar(new ArrayList<>(), false));
+        }
+        if (end.isBefore(start)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("'to' must not be before 'from'"));
+        }
+        
+        long now = System.currentTimeMillis();
+        List<CompletableFuture<Void>> fetches = new ArrayList<>();
+        for (IpoCalendarStore.DateRange gap : ipoCalendarStore.gaps(start, end, now - ipoCacheExpireAfterWrite.toMillis())) {
+            fetches.add(fetchIntoStore(gap));
+        }
+        
+        return CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0])).handle((result, error) -> {
+            if (error != null) {
+                // Failed fetches leave the store untouched, so the next request retries upstream
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println("Error fetching IPO calendar, serving last known data: " + cause.getMessage());
+                staleResponses.increment();
+                return new IpoCalendar(ipoCalendarStore.slice(start, end), true);
+            }
             
-            List<IpoOffering> ipoOfferings = new ArrayList<>();
+            for (IpoCalendarStore.DateRange stale : ipoCalendarStore.gaps(start, end, now - ipoCacheRefreshAfterWrite.toMillis())) {
+                fetchIntoStore(stale);
+            }
+            return new IpoCalendar(ipoCalendarStore.slice(start, end), false);
+        });
+    }
+    
+    private CompletableFuture<Void> fetchIntoStore(IpoCalendarStore.DateRange range) {
+        CompletableFuture<Void> fetch = new CompletableFuture<>();
+        CompletableFuture<Void> existing = ipoFetchesInFlight.putIfAbsent(range, fetch);
+        if (existing != null) {
+            return existing;
+        }
+        
+        long fetchedAt = System.currentTimeMillis();
+        fetchIpoCalendar(range.from().toString(), range.to().toString())
+            .thenAccept(offerings -> ipoCalendarStore.put(range.from(), range.to(), offerings, fetchedAt))
+            .whenComplete((result, error) -> {
+                ipoFetchesInFlight.remove(range, fetch);
+                if (error != null) {
+                    fetch.completeExceptionally(error);
+                } else {
+                    fetch.complete(null);
+                }
+            });
+        return fetch;
+    }
+    
+    private CompletableFuture<List<IpoOffering>> fetchIpoCalendar(String from, String to) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            callsNotPermitted.increment();
+            return CompletableFuture.failedFuture(new IllegalStateException("Finnhub circuit breaker is open"));
+        }
+        if (!rateLimiter.tryAcquire()) {
+            permitsRejected.increment();
+            circuitBreaker.releasePermission();
+            return CompletableFuture.failedFuture(new IllegalStateException("Finnhub rate limit reached"));
+        }
+        permitsAcquired.increment();
+        
+        URI uri = URI.create(String.format("%s%s?from=%s&to=%s&token=%s", 
+            FINNHUB_BASE_URL, IPO_CALENDAR_ENDPOINT, from, to, apiKey));
+        
+        return upstreamHttpClient.get(uri)
+            .thenApply(this::parseIpoCalendarResponse)
+            .whenComplete((offerings, error) -> {
+                if (error != null) {
+                    circuitBreaker.recordFailure();
+                    callsFailed.increment();
+                } else {
+                    circuitBreaker.recordSuccess();
+                    callsSucceeded.increment();
+                }
+            });
+    }
+    
+    private List<IpoOffering> parseIpoCalendarResponse(HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Finnhub responded with status " + response.statusCode());
+        }
+        try {
+            return parseIpoCalendar(response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Read the offerings of an IPO calendar response token by token, skipping everything else.
+     * The body has to be complete for the request not to block, but no String or tree of it is built.
+     */
+    private List<IpoOffering> parseIpoCalendar(byte[] body) throws IOException {
+        List<IpoOffering> ipoOfferings = new ArrayList<>();
+        
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an object in IPO calendar response");
+            }
             
-            if (rootNode.has("ipoCalendar")) {
-                JsonNode ipoCalendarNode = rootNode.get("ipoCalendar");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
                 
-                for (JsonNode ipoNode : ipoCalendarNode) {
-                    IpoOffering offering = new IpoOffering();
-                    
-                    if (ipoNode.has("date")) {
-                        offering.setDate(ipoNode.get("date").asText());
-                    }
-                    if (ipoNode.has("company")) {
-                        offering.setCompany(ipoNode.get("company").asText());
+                if ("ipoCalendar".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        ipoOfferings.add(parseIpoOffering(parser));
                     }
-                    if (ipoNode.has("symbol")) {
-                        offering.setSymbol(ipoNode.get("symbol").asText());
-                    }
-                    if (ipoNode.has("exchange")) {
-                        offering.setExchange(ipoNode.get("exchange").asText());
-                    }
-                    if (ipoNode.has("action")) {
-                        offering.setAction(ipoNode.get("action").asText());
-                    }
-                    if (ipoNode.has("shares")) {
-                        offering.setShares(ipoNode.get("shares").asLong());
-                    }
-                    if (ipoNode.has("price")) {
-                        offering.setPrice(ipoNode.get("price").asText());
-                    }
-                    if (ipoNode.has("currency")) {
-                        offering.setCurrency(ipoNode.get("currency").asText());
-                    }
-                    
-                    ipoOfferings.add(offering);
+                } else {
+                    parser.skipChildren();
                 }
             }
+        }
+        
+        return List.copyOf(ipoOfferings);
+    }
+    
+    private IpoOffering parseIpoOffering(JsonParser parser) throws IOException {
+        IpoOffering offering = new IpoOffering();
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
             
-            return ipoOfferings;
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
             
-        } catch (Exception e) {
-            System.err.println("Error fetching IPO calendar: " + e.getMessage());
-            return new ArrayList<>();
+            switch (field) {
+                case "date" -> offering.setDate(textOf(parser, value));
+                case "company" -> offering.setCompany(textOf(parser, value));
+                case "symbol" -> offering.setSymbol(textOf(parser, value));
+                case "exchange" -> offering.setExchange(textOf(parser, value));
+                case "action" -> offering.setAction(textOf(parser, value));
+                case "shares" -> offering.setShares(value == JsonToken.VALUE_NULL ? null : parser.getValueAsLong());
+                case "price" -> offering.setPrice(textOf(parser, value));
+                case "currency" -> offering.setCurrency(textOf(parser, value));
+                default -> {
+                    // Field we do not expose
+                }
+            }
         }
+        
+        return offering;
+    }
+    
+    private static String textOf(JsonParser parser, JsonToken value) throws IOException {
+        return value == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+    
+    private Counter upstreamCounter(String name, String tagKey, String tagValue) {
+        return Counter.builder(name)
+            .tag("upstream", "finnhub")
+            .tag(tagKey, tagValue)
+            .register(meterRegistry);
     }
     
     /**
      * Get IPO calendar for the current month
      */
-    public List<IpoOffering> getCurrentMonthIpoCalendar() {
+    public CompletableFuture<IpoCalendar> getCurrentMonthIpoCalendar() {
         LocalDate now = LocalDate.now();
         LocalDate startOfMonth = now.withDayOfMonth(1);
         LocalDate endOfMonth = now.withDayOfMonth(now.lengthOfMonth());
@@ -102,7 +307,7 @@ public class FinnhubService {
     /**
      * Get IPO calendar for the next 30 days
      */
-    public List<IpoOffering> getNext30DaysIpoCalendar() {
+    public CompletableFuture<IpoCalendar> getNext30DaysIpoCalendar() {
         LocalDate now = LocalDate.now();
         LocalDate thirtyDaysFromNow = now.plusDays(30);
         
@@ -110,6 +315,28 @@ public class FinnhubService {
         return getIpoCalendar(now.format(formatter), thirtyDaysFromNow.format(formatter));
     }
     
+    /**
+     * IPO offerings for a date range; stale when Finnhub could not be reached and
+     * the offerings are the last ones known
+     */
+    public static class IpoCalendar {
+        private final List<IpoOffering> offerings;
+        private final boolean stale;
+        
+        public IpoCalendar(List<IpoOffering> offerings, boolean stale) {
+            this.offerings = offerings;
+            this.stale = stale;
+        }
+        
+        public List<IpoOffering> getOfferings() {
+            return offerings;
+        }
+        
+        public boolean isStale() {
+            return stale;
+        }
+    }
+    
     /**
      * IPO Offering data class
      */
@@ -0,0 +1,342 @@
+package com.karmooch.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karmooch.dto.CreateInvestmentRequest;
+import com.karmooch.dto.InvestmentImportResultDto;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk import of investment lots from CSV or JSON lines.
+ *
+ * The body is read line by line and every row is validated as it arrives, without holding a
+ * connection: valid rows are spooled to a temporary file, invalid rows are reported with their
+ * line number and skipped. The spooled rows are then written with JDBC batch inserts (rewritten
+ * into multi-row INSERTs by the Postgres driver), bypassing per-entity persistence and the
+ * IDENTITY id round trip. Every batch commits in its own short transaction, so a batch the
+ * database rejects is reported and the others are kept. The portfolio summary triggers keep
+ * the pre-aggregated tables in step.
+ */
+@Service
+public class InvestmentImportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(InvestmentImportService.class);
+    
+    private static final String INSERT_SQL = "INSERT INTO investments "
+        + "(portfolio_id, symbol, name, shares, purchase_price, purchase_date, created_at, updated_at) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    // Integer digits allowed by DECIMAL(15, 6) and DECIMAL(10, 2)
+    private static final int SHARES_INTEGER_DIGITS = 9;
+    private static final int PRICE_INTEGER_DIGITS = 8;
+    
+    public enum Format {
+        CSV, JSON_LINES
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PortfolioValuationEngine valuationEngine;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Value("${investment-import.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${investment-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+    
+    @Value("${investment-import.max-rows:1000000}")
+    private int maxRows;
+    
+    /**
+     * Import investments into a portfolio whose ownership has already been checked
+     */
+    public InvestmentImportResultDto importInvestments(Long portfolioId, InputStream body, Format format)
+            throws IOException {
+        InvestmentImportResultDto result = new InvestmentImportResultDto();
+        Path spool = Files.createTempFile("investment-import-", ".rows");
+        try {
+            int rows;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spool)))) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+                rows = readRows(reader, format, out, result);
+            }
+            if (rows > 0) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spool)))) {
+                    writeRows(portfolioId, in, rows, result);
+                } finally {
+                    // Rows were written behind Hibernate's and the engine's back, so drop the cached
+                    // investment ids of the portfolio and rebuild its aggregate
+                    entityManagerFactory.getCache().unwrap(Cache.class)
+                        .evictCollectionData("com.karmooch.entity.Portfolio.investments", portfolioId);
+                    valuationEngine.reload(portfolioId);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+        return result;
+    }
+    
+    /**
+     * Parse and validate the body, spooling valid rows; returns the number of rows spooled
+     */
+    private int readRows(BufferedReader reader, Format format, DataOutputStream out,
+                         InvestmentImportResultDto result) throws IOException {
+        int rows = 0;
+        long lineNumber = 0;
+        
+        Map<String, Integer> columns = null;
+        if (format == Format.CSV) {
+            String header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                return 0;
+            }
+            columns = csvColumns(header);
+        }
+        
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            
+            CreateInvestmentRequest row;
+            try {
+                row = format == Format.CSV
+                    ? parseCsvRow(line, columns)
+                    : objectMapper.readValue(line, CreateInvestmentRequest.class);
+            } catch (JsonProcessingException e) {
+                result.addError(lineNumber, "Invalid JSON: " + e.getOriginalMessage(), maxReportedErrors);
+                continue;
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                result.addError(lineNumber, e.getMessage(), maxReportedErrors);
+                continue;
+            }
+            
+            String error = validate(row);
+            if (error != null) {
+                result.addError(lineNumber, error, maxReportedErrors);
+                continue;
+            }
+            
+            if (rows == maxRows) {
+                throw new IllegalArgumentException("Import is limited to " + maxRows + " rows");
+            }
+            out.writeLong(lineNumber);
+            out.writeUTF(row.getSymbol());
+            out.writeUTF(row.getName());
+            out.writeUTF(row.getShares().toPlainString());
+            out.writeUTF(row.getPurchasePrice().toPlainString());
+            out.writeLong(row.getPurchaseDate().toEpochDay());
+            rows++;
+        }
+        return rows;
+    }
+    
+    /**
+     * Insert the spooled rows, one transaction per batch
+     */
+    private void writeRows(Long portfolioId, DataInputStream in, int rows,
+                           InvestmentImportResultDto result) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(Math.min(batchSize, rows));
+        long firstLine = 0;
+        long lastLine = 0;
+        
+        for (int i = 0; i < rows; i++) {
+            lastLine = in.readLong();
+            if (batch.isEmpty()) {
+                firstLine = lastLine;
+            }
+            batch.add(new Object[] {
+                portfolioId, in.readUTF(), in.readUTF(), new BigDecimal(in.readUTF()),
+                new BigDecimal(in.readUTF()), LocalDate.ofEpochDay(in.readLong()), now, now
+            });
+            if (batch.size() == batchSize || i == rows - 1) {
+                flush(batch, firstLine, lastLine, result);
+            }
+        }
+    }
+    
+    private void flush(List<Object[]> batch, long firstLine, long lastLine, InvestmentImportResultDto result) {
+        try {
+            valuationEngine.tracking(() -> transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                return null;
+            }));
+            result.addImported(batch.size());
+        } catch (DataAccessException e) {
+            log.warn("Import batch of lines {}-{} failed", firstLine, lastLine, e);
+            result.addFailedBatch(firstLine, lastLine, batch.size(), "the database rejected the batch",
+                maxReportedErrors);
+        }
+        batch.clear();
+    }
+    
+    private String validate(CreateInvestmentRequest row) {
+        Set<ConstraintViolation<CreateInvestmentRequest>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            List<String> messages = new ArrayList<>();
+            for (ConstraintViolation<CreateInvestmentRequest> violation : violations) {
+                messages.add(violation.getMessage());
+            }
+            messages.sort(null);
+            return String.join("; ", messages);
+        }
+        if (integerDigits(row.getShares()) > SHARES_INTEGER_DIGITS) {
+            return "Shares must have at most " + SHARES_INTEGER_DIGITS + " integer digits";
+        }
+        if (integerDigits(row.getPurchasePrice()) > PRICE_INTEGER_DIGITS) {
+            return "Purchase price must have at most " + PRICE_INTEGER_DIGITS + " integer digits";
+        }
+        return null;
+    }
+    
+    private static int integerDigits(BigDecimal value) {
+        return value.precision() - value.scale();
+    }
+    
+    /**
+     * Map header names to column positions; accepts camelCase or snake_case names in any order
+     */
+    private static Map<String, Integer> csvColumns(String header) {
+        List<String> names = splitCsvLine(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            columns.put(name, i);
+        }
+        for (String required : List.of("symbol", "name", "shares", "purchaseprice", "purchasedate")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing column " + required);
+            }
+        }
+        return columns;
+    }
+    
+    private static CreateInvestmentRequest parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = splitCsvLine(line);
+        return new CreateInvestmentRequest(
+            field(fields, columns, "symbol"),
+            field(fields, columns, "name"),
+            decimal(field(fields, columns, "shares"), "shares"),
+            decimal(field(fields, columns, "purchaseprice"), "purchase price"),
+            date(field(fields, columns, "purchasedate"))
+        );
+    }
+    
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        if (index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static BigDecimal decimal(String value, String name) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+    
+    private static LocalDate date(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid purchase date: " + value);
+        }
+    }
+    
+    /**
+     * Split one CSV record, honouring double-quoted fields with "" escapes
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
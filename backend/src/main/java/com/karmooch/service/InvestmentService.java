@@ -4,11 +4,23 @@ import com.karmooch.entity.Investment;
 import com.karmooch.entity.Portfolio;
 import com.karmooch.repository.InvestmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -17,16 +29,101 @@ public class InvestmentService {
     @Autowired
     private InvestmentRepository investmentRepository;
     
+    @Autowired
+    private PortfolioValuationEngine valuationEngine;
+    
     public Investment createInvestment(Portfolio portfolio, String symbol, String name, 
                                      BigDecimal shares, BigDecimal purchasePrice, LocalDate purchaseDate) {
         Investment investment = new Investment(portfolio, symbol, name, shares, purchasePrice, purchaseDate);
-        return investmentRepository.save(investment);
+        return valuationEngine.tracking(() -> {
+            Investment saved = investmentRepository.save(investment);
+            valuationEngine.investmentAdded(saved);
+            return saved;
+        });
     }
     
+    @Transactional(readOnly = true)
     public List<Investment> getInvestmentsByPortfolio(Long portfolioId) {
         return investmentRepository.findByPortfolioIdOrderByCreatedAtDesc(portfolioId);
     }
     
+    /**
+     * All of a portfolio's investments ordered by (createdAt, id), optionally limited to a symbol
+     */
+    @Transactional(readOnly = true)
+    public List<Investment> getInvestments(Long portfolioId, String symbol, boolean newestFirst) {
+        Sort sort = Sort.by(newestFirst ? Sort.Direction.DESC : Sort.Direction.ASC, "createdAt", "id");
+        String symbolFilter = symbolFilter(symbol);
+        
+        if (symbolFilter.isEmpty()) {
+            return investmentRepository.findByPortfolioId(portfolioId, sort);
+        }
+        return investmentRepository.findByPortfolioIdAndSymbolIgnoreCase(portfolioId, symbolFilter, sort);
+    }
+    
+    /**
+     * One page of a portfolio's investments ordered by (createdAt, id), optionally limited to a symbol.
+     * The cursor is the token returned with the previous page, or null for the first page.
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort or symbol
+     */
+    @Transactional(readOnly = true)
+    public Window<Investment> getInvestmentPage(Long portfolioId, String symbol, boolean newestFirst,
+                                                String cursor, int limit) {
+        Sort.Direction direction = newestFirst ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, "createdAt", "id");
+        String symbolFilter = symbolFilter(symbol);
+        KeysetScrollPosition position = decodeCursor(cursor, newestFirst, symbolFilter);
+        
+        if (symbolFilter.isEmpty()) {
+            return investmentRepository.findByPortfolioId(portfolioId, position, sort, Limit.of(limit));
+        }
+        return investmentRepository.findByPortfolioIdAndSymbolIgnoreCase(
+            portfolioId, symbolFilter, position, sort, Limit.of(limit));
+    }
+    
+    /**
+     * Cursor pointing after the last investment of a page, or null when there are no more pages.
+     * It carries the sort and symbol of the page, so it cannot be replayed against another ordering.
+     */
+    public String nextCursor(Window<Investment> page, boolean newestFirst, String symbol) {
+        if (!page.hasNext() || page.isEmpty()) {
+            return null;
+        }
+        Investment last = page.getContent().get(page.size() - 1);
+        String key = (newestFirst ? "newest" : "oldest") + "|" + last.getCreatedAt() + "|" + last.getId()
+            + "|" + symbolFilter(symbol);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String symbolFilter(String symbol) {
+        return symbol == null ? "" : symbol.trim().toUpperCase();
+    }
+    
+    private static KeysetScrollPosition decodeCursor(String cursor, boolean newestFirst, String symbolFilter) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        String[] parts;
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // The symbol comes last, so a '|' inside it cannot shift the other fields
+            parts = key.split("\\|", 4);
+            keys.put("createdAt", LocalDateTime.parse(parts[1]));
+            keys.put("id", Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!parts[0].equals(newestFirst ? "newest" : "oldest") || !parts[3].equals(symbolFilter)) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort or symbol");
+        }
+        return ScrollPosition.forward(keys);
+    }
+    
+    @Transactional(readOnly = true)
     public Optional<Investment> getInvestmentById(Long id) {
         return investmentRepository.findById(id);
     }
@@ -35,6 +132,19 @@ public class InvestmentService {
                                      BigDecimal shares, BigDecimal purchasePrice, LocalDate purchaseDate) {
         Investment investment = investmentRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Investment not found"));
+        return updateInvestment(investment, symbol, name, shares, purchasePrice, purchaseDate);
+    }
+    
+    /**
+     * Update an investment the caller has already loaded
+     */
+    public Investment updateInvestment(Investment investment, String symbol, String name,
+                                     BigDecimal shares, BigDecimal purchasePrice, LocalDate purchaseDate) {
+        // Remember the old position so the valuation engine can back it out
+        Long portfolioId = investment.getPortfolio().getId();
+        String oldSymbol = investment.getSymbol();
+        BigDecimal oldShares = investment.getShares();
+        BigDecimal oldPurchasePrice = investment.getPurchasePrice();
         
         investment.setSymbol(symbol);
         investment.setName(name);
@@ -42,13 +152,30 @@ public class InvestmentService {
         investment.setPurchasePrice(purchasePrice);
         investment.setPurchaseDate(purchaseDate);
         
-        return investmentRepository.save(investment);
+        return valuationEngine.tracking(() -> {
+            Investment saved = investmentRepository.save(investment);
+            valuationEngine.investmentRemoved(portfolioId, oldSymbol, oldShares, oldPurchasePrice);
+            valuationEngine.investmentAdded(saved);
+            return saved;
+        });
     }
     
     public void deleteInvestment(Long id) {
-        investmentRepository.deleteById(id);
+        investmentRepository.findById(id).ifPresent(this::deleteInvestment);
+    }
+    
+    /**
+     * Delete an investment the caller has already loaded
+     */
+    public void deleteInvestment(Investment investment) {
+        valuationEngine.tracking(() -> {
+            investmentRepository.delete(investment);
+            valuationEngine.investmentRemoved(investment);
+            return null;
+        });
     }
     
+    @Transactional(readOnly = true)
     public List<Investment> getInvestmentsBySymbol(String symbol) {
         return investmentRepository.findBySymbol(symbol);
     }
@@ -0,0 +1,164 @@
+package com.karmooch.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * IPO offerings indexed by date, together with the date ranges that have been fetched.
+ *
+ * Coverage is kept as non-overlapping intervals stamped with their fetch time, so a requested
+ * window splits into parts that are fresh, parts that are too old and parts never fetched.
+ * Only the latter two go upstream; the window itself is answered by slicing the sorted offerings.
+ */
+class IpoCalendarStore {
+
+    private final TreeMap<LocalDate, List<FinnhubService.IpoOffering>> offeringsByDate = new TreeMap<>();
+    private final TreeMap<LocalDate, Interval> coverageByStart = new TreeMap<>();
+    private final long maximumDays;
+
+    IpoCalendarStore(long maximumDays) {
+        this.maximumDays = maximumDays;
+    }
+
+    /**
+     * Parts of [from, to] that were never fetched or were fetched before the given time,
+     * merged into as few ranges as possible
+     */
+    synchronized List<DateRange> gaps(LocalDate from, LocalDate to, long fetchedNotBefore) {
+        List<DateRange> gaps = new ArrayList<>();
+        LocalDate cursor = from;
+
+        for (Interval interval : overlapping(from, to)) {
+            if (interval.start.isAfter(cursor)) {
+                addGap(gaps, cursor, interval.start.minusDays(1));
+            }
+            if (interval.fetchedAt < fetchedNotBefore) {
+                addGap(gaps, max(cursor, interval.start), min(interval.end, to));
+            }
+            cursor = interval.end.plusDays(1);
+        }
+        if (!cursor.isAfter(to)) {
+            addGap(gaps, cursor, to);
+        }
+        return gaps;
+    }
+
+    /**
+     * Replace everything known about [from, to] with a fresh upstream answer
+     */
+    synchronized void put(LocalDate from, LocalDate to, List<FinnhubService.IpoOffering> offerings, long fetchedAt) {
+        offeringsByDate.subMap(from, true, to, true).clear();
+        for (FinnhubService.IpoOffering offering : offerings) {
+            LocalDate date = dateOf(offering);
+            if (date != null && !date.isBefore(from) && !date.isAfter(to)) {
+                offeringsByDate.computeIfAbsent(date, d -> new ArrayList<>()).add(offering);
+            }
+        }
+
+        // Trim intervals that overlap the new one, keeping their parts outside it
+        for (Interval interval : overlapping(from, to)) {
+            coverageByStart.remove(interval.start);
+            if (interval.start.isBefore(from)) {
+                add(new Interval(interval.start, from.minusDays(1), interval.fetchedAt));
+            }
+            if (interval.end.isAfter(to)) {
+                add(new Interval(to.plusDays(1), interval.end, interval.fetchedAt));
+            }
+        }
+        add(new Interval(from, to, fetchedAt));
+
+        evictOldest();
+    }
+
+    /**
+     * Offerings dated within [from, to], in date order
+     */
+    synchronized List<FinnhubService.IpoOffering> slice(LocalDate from, LocalDate to) {
+        List<FinnhubService.IpoOffering> offerings = new ArrayList<>();
+        for (List<FinnhubService.IpoOffering> day : offeringsByDate.subMap(from, true, to, true).values()) {
+            offerings.addAll(day);
+        }
+        return offerings;
+    }
+
+    private List<Interval> overlapping(LocalDate from, LocalDate to) {
+        List<Interval> intervals = new ArrayList<>();
+        Map.Entry<LocalDate, Interval> before = coverageByStart.lowerEntry(from);
+        if (before != null && !before.getValue().end.isBefore(from)) {
+            intervals.add(before.getValue());
+        }
+        intervals.addAll(coverageByStart.subMap(from, true, to, true).values());
+        return intervals;
+    }
+
+    private void add(Interval interval) {
+        coverageByStart.put(interval.start, interval);
+    }
+
+    // Drop the least recently fetched ranges while more days are covered than allowed
+    private void evictOldest() {
+        long coveredDays = 0;
+        for (Interval interval : coverageByStart.values()) {
+            coveredDays += interval.days();
+        }
+        while (coveredDays > maximumDays && coverageByStart.size() > 1) {
+            Interval oldest = null;
+            for (Interval interval : coverageByStart.values()) {
+                if (oldest == null || interval.fetchedAt < oldest.fetchedAt) {
+                    oldest = interval;
+                }
+            }
+            coverageByStart.remove(oldest.start);
+            offeringsByDate.subMap(oldest.start, true, oldest.end, true).clear();
+            coveredDays -= oldest.days();
+        }
+    }
+
+    private static void addGap(List<DateRange> gaps, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        int last = gaps.size() - 1;
+        if (last >= 0 && gaps.get(last).to().plusDays(1).equals(from)) {
+            gaps.set(last, new DateRange(gaps.get(last).from(), to));
+        } else {
+            gaps.add(new DateRange(from, to));
+        }
+    }
+
+    private static LocalDate dateOf(FinnhubService.IpoOffering offering) {
+        if (offering.getDate() == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(offering.getDate());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Inclusive range of dates
+     */
+    record DateRange(LocalDate from, LocalDate to) {}
+
+    private record Interval(LocalDate start, LocalDate end, long fetchedAt) {
+
+        long days() {
+            return ChronoUnit.DAYS.between(start, end) + 1;
+        }
+    }
+}
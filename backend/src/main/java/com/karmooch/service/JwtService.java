@@ -0,0 +1,69 @@
+package com.karmooch.service;
+
+import com.karmooch.config.AuthenticatedUser;
+import com.karmooch.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Issues and verifies the HMAC-signed tokens that identify API callers.
+ *
+ * The key and parser are built once from {@code jwt.secret}, so verifying a request costs one
+ * HMAC and no database access. Tokens carry the user id as subject and the user's roles.
+ */
+@Service
+public class JwtService {
+    
+    private static final String ROLES_CLAIM = "roles";
+    private static final List<String> USER_ROLES = List.of("USER");
+    
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final long expirationMs;
+    
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.expiration}") long expirationMs) {
+        // Rejects secrets shorter than 256 bits at startup
+        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.expirationMs = expirationMs;
+    }
+    
+    public String generateToken(User user) {
+        Date now = new Date();
+        return Jwts.builder()
+            .subject(user.getId().toString())
+            .claim(ROLES_CLAIM, USER_ROLES)
+            .issuedAt(now)
+            .expiration(new Date(now.getTime() + expirationMs))
+            .signWith(key)
+            .compact();
+    }
+    
+    /**
+     * Verify a token's signature and expiry and return the user it was issued to
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired
+     */
+    public AuthenticatedUser parseToken(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        
+        List<String> roles = new ArrayList<>();
+        Object claimedRoles = claims.get(ROLES_CLAIM);
+        if (claimedRoles instanceof List<?> list) {
+            for (Object role : list) {
+                roles.add(String.valueOf(role));
+            }
+        }
+        return new AuthenticatedUser(Long.valueOf(claims.getSubject()), roles);
+    }
+}
@@ -1,37 +1,43 @@
 package com.karmooch.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class MarketDataService {
     
     // Mock current prices - in a real application, this would fetch from a market data API
-    private final Map<String, BigDecimal> mockCurrentPrices;
-    private final Random random = new Random();
+    private final PriceStore priceStore;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     public MarketDataService() {
-        mockCurrentPrices = new HashMap<>();
+        priceStore = new PriceStore();
         initializeMockPrices();
     }
     
     private void initializeMockPrices() {
         // Initialize with some realistic mock prices
-        mockCurrentPrices.put("AAPL", new BigDecimal("175.50"));
-        mockCurrentPrices.put("GOOGL", new BigDecimal("2850.75"));
-        mockCurrentPrices.put("MSFT", new BigDecimal("415.20"));
-        mockCurrentPrices.put("TSLA", new BigDecimal("245.80"));
-        mockCurrentPrices.put("AMZN", new BigDecimal("3150.40"));
-        mockCurrentPrices.put("NVDA", new BigDecimal("485.60"));
-        mockCurrentPrices.put("META", new BigDecimal("325.90"));
-        mockCurrentPrices.put("NFLX", new BigDecimal("485.30"));
-        mockCurrentPrices.put("AMD", new BigDecimal("125.40"));
-        mockCurrentPrices.put("INTC", new BigDecimal("45.80"));
+        priceStore.put("AAPL", 17550);
+        priceStore.put("GOOGL", 285075);
+        priceStore.put("MSFT", 41520);
+        priceStore.put("TSLA", 24580);
+        priceStore.put("AMZN", 315040);
+        priceStore.put("NVDA", 48560);
+        priceStore.put("META", 32590);
+        priceStore.put("NFLX", 48530);
+        priceStore.put("AMD", 12540);
+        priceStore.put("INTC", 4580);
     }
     
     /**
@@ -39,49 +45,90 @@ public class MarketDataService {
      * In a real application, this would fetch from a market data API like Alpha Vantage, Yahoo Finance, etc.
      */
     public BigDecimal getCurrentPrice(String symbol) {
+        String key = symbol.toUpperCase();
+        
         // Check if we have a cached price
-        if (mockCurrentPrices.containsKey(symbol.toUpperCase())) {
-            return mockCurrentPrices.get(symbol.toUpperCase());
+        BigDecimal price = priceStore.get(key);
+        if (price != null) {
+            return price;
         }
         
         // For unknown symbols, generate a mock price based on the symbol hash
         // This ensures consistent "prices" for the same symbol
-        int hash = symbol.toUpperCase().hashCode();
-        random.setSeed(hash);
+        Random seeded = new Random(key.hashCode());
         
         // Generate a price between $10 and $1000
-        double basePrice = 10 + (random.nextDouble() * 990);
-        BigDecimal mockPrice = new BigDecimal(basePrice).setScale(2, RoundingMode.HALF_UP);
+        double basePrice = 10 + (seeded.nextDouble() * 990);
+        BigDecimal mockPrice = new BigDecimal(basePrice).setScale(PriceStore.PRICE_SCALE, RoundingMode.HALF_UP);
         
-        // Cache the generated price
-        mockCurrentPrices.put(symbol.toUpperCase(), mockPrice);
-        
-        return mockPrice;
+        // Cache the generated price; a concurrent caller may have won the race
+        return priceStore.putIfAbsent(key, mockPrice.unscaledValue().longValue());
     }
     
+    /**
+     * Get current market prices for a set of symbols in one call
+     * Known symbols are all read from the same price snapshot; keys in the result are the symbols as given
+     */
+    public Map<String, BigDecimal> getCurrentPrices(Collection<String> symbols) {
+        Map<String, BigDecimal> prices = new HashMap<>((int) (symbols.size() / 0.75f) + 1);
+        PriceStore.Snapshot snapshot = priceStore.snapshot();
+
+        for (String symbol : symbols) {
+            if (prices.containsKey(symbol)) {
+                continue;
+            }
+            BigDecimal price = snapshot.price(priceStore.idOf(symbol.toUpperCase()));
+            prices.put(symbol, price != null ? price : getCurrentPrice(symbol));
+        }
+
+        return prices;
+    }
+
     /**
      * Simulate price volatility by adding small random changes
      * This makes the demo more realistic
      */
     public BigDecimal getVolatilePrice(String symbol) {
-        BigDecimal basePrice = getCurrentPrice(symbol);
-        
+        return applyVolatility(getCurrentPrice(symbol));
+    }
+    
+    private BigDecimal applyVolatility(BigDecimal basePrice) {
         // Add small random variation (-5% to +5%)
-        double variation = -0.05 + (random.nextDouble() * 0.10);
+        double variation = -0.05 + (ThreadLocalRandom.current().nextDouble() * 0.10);
         BigDecimal multiplier = new BigDecimal(1 + variation).setScale(4, RoundingMode.HALF_UP);
         
-        return basePrice.multiply(multiplier).setScale(2, RoundingMode.HALF_UP);
+        return basePrice.multiply(multiplier).setScale(PriceStore.PRICE_SCALE, RoundingMode.HALF_UP);
     }
     
     /**
      * Update mock prices with small random changes
      * In a real application, this would be triggered by market data updates
+     *
+     * The complete new price set is built off to the side and published with a single
+     * atomic swap, so readers see either all old or all new prices. If a new symbol is
+     * added while the set is being built, the refresh is redone against the newer snapshot.
      */
     public void updateMockPrices() {
-        for (String symbol : mockCurrentPrices.keySet()) {
-            BigDecimal currentPrice = mockCurrentPrices.get(symbol);
-            BigDecimal newPrice = getVolatilePrice(symbol);
-            mockCurrentPrices.put(symbol, newPrice);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        
+        while (true) {
+            PriceStore.Snapshot base = priceStore.snapshot();
+            long[] newCents = new long[base.capacity()];
+            long[] volumes = new long[base.capacity()];
+            
+            for (int id = 0; id < base.capacity(); id++) {
+                if (base.has(id)) {
+                    newCents[id] = applyVolatility(base.price(id)).unscaledValue().longValue();
+                    volumes[id] = random.nextLong(100, 10_000);
+                }
+            }
+            
+            PriceStore.Snapshot published = priceStore.publish(base, newCents);
+            if (published != null) {
+                eventPublisher.publishEvent(
+                    new PriceUpdateEvent(base, published, System.currentTimeMillis(), volumes));
+                return;
+            }
         }
     }
 }
@@ -0,0 +1,163 @@
+package com.karmooch.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karmooch.dto.PortfolioExportRow;
+import com.karmooch.repository.PortfolioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams a user's portfolios and investments as CSV or newline-delimited JSON.
+ *
+ * Rows come from a forward-only cursor of flat projections rather than the portfolio
+ * entity graph, so nothing accumulates in the persistence context and memory stays
+ * bounded by the fetch size however many investments a user holds. Each row is written
+ * to the response as it is read.
+ */
+@Service
+public class PortfolioExportService {
+    
+    private static final String CSV_HEADER = "portfolioId,portfolioName,portfolioDescription,"
+        + "investmentId,symbol,name,shares,purchasePrice,purchaseDate";
+    
+    public enum Format {
+        CSV("text/csv", "csv"),
+        JSON_LINES("application/x-ndjson", "ndjson");
+        
+        private final String contentType;
+        private final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        public static Format fromCode(String code) {
+            switch (code.toLowerCase()) {
+                case "csv":
+                    return CSV;
+                case "ndjson":
+                case "jsonl":
+                    return JSON_LINES;
+                default:
+                    throw new IllegalArgumentException("Unsupported export format: " + code);
+            }
+        }
+    }
+    
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final TransactionTemplate readOnlyTransaction;
+    
+    public PortfolioExportService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    /**
+     * Write every portfolio of the user, with its investments, to the given stream
+     */
+    public void export(Long userId, Format format, OutputStream out) {
+        // The Postgres driver only honours the fetch size with auto-commit off
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<PortfolioExportRow> rows = portfolioRepository.streamExportRowsByUserId(userId)) {
+                if (format == Format.CSV) {
+                    writeCsv(rows.iterator(), out);
+                } else {
+                    writeJsonLines(rows.iterator(), out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    private void writeCsv(Iterator<PortfolioExportRow> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        
+        while (rows.hasNext()) {
+            PortfolioExportRow row = rows.next();
+            writeCsvField(writer, row.getPortfolioId());
+            writer.write(',');
+            writeCsvField(writer, neutralizeFormula(row.getPortfolioName()));
+            writer.write(',');
+            writeCsvField(writer, neutralizeFormula(row.getPortfolioDescription()));
+            writer.write(',');
+            writeCsvField(writer, row.getInvestmentId());
+            writer.write(',');
+            writeCsvField(writer, neutralizeFormula(row.getSymbol()));
+            writer.write(',');
+            writeCsvField(writer, neutralizeFormula(row.getName()));
+            writer.write(',');
+            writeCsvField(writer, row.getShares() != null ? row.getShares().toPlainString() : null);
+            writer.write(',');
+            writeCsvField(writer, row.getPurchasePrice() != null ? row.getPurchasePrice().toPlainString() : null);
+            writer.write(',');
+            writeCsvField(writer, row.getPurchaseDate());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+    
+    /**
+     * Spreadsheets run a cell starting with =, +, -, @, tab or carriage return as a formula;
+     * a leading apostrophe makes them show user-entered text as text
+     */
+    private static String neutralizeFormula(String text) {
+        if (text == null || text.isEmpty() || "=+-@\t\r".indexOf(text.charAt(0)) < 0) {
+            return text;
+        }
+        return "'" + text;
+    }
+    
+    private static void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+    
+    private void writeJsonLines(Iterator<PortfolioExportRow> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (rows.hasNext()) {
+                objectMapper.writeValue(generator, rows.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
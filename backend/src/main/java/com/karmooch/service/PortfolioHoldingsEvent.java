@@ -0,0 +1,50 @@
+package com.karmooch.service;
+
+/**
+ * Published by {@link PortfolioValuationEngine} when a portfolio is created or deleted, or
+ * when the set of investments it holds changes. Listeners that index portfolios by symbol
+ * use it to re-read the portfolio's holdings.
+ */
+public class PortfolioHoldingsEvent {
+
+    public enum Type {
+        CREATED,
+        CHANGED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Long portfolioId;
+    private final Long userId;
+
+    private PortfolioHoldingsEvent(Type type, Long portfolioId, Long userId) {
+        this.type = type;
+        this.portfolioId = portfolioId;
+        this.userId = userId;
+    }
+
+    public static PortfolioHoldingsEvent created(Long portfolioId, Long userId) {
+        return new PortfolioHoldingsEvent(Type.CREATED, portfolioId, userId);
+    }
+
+    public static PortfolioHoldingsEvent changed(Long portfolioId) {
+        return new PortfolioHoldingsEvent(Type.CHANGED, portfolioId, null);
+    }
+
+    public static PortfolioHoldingsEvent deleted(Long portfolioId) {
+        return new PortfolioHoldingsEvent(Type.DELETED, portfolioId, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    /** Owner of the portfolio, only set for {@link Type#CREATED} */
+    public Long getUserId() {
+        return userId;
+    }
+}
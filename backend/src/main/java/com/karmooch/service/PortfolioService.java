@@ -5,29 +5,59 @@ import com.karmooch.entity.User;
 import com.karmooch.repository.PortfolioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class PortfolioService {
     
+    private static final String OWNERSHIP_ATTRIBUTE = PortfolioService.class.getName() + ".ownership";
+    
     @Autowired
     private PortfolioRepository portfolioRepository;
     
+    @Autowired
+    private PortfolioValuationEngine valuationEngine;
+    
     public Portfolio createPortfolio(User user, String name, String description) {
-        Portfolio portfolio = new Portfolio(user, name, description);
-        return portfolioRepository.save(portfolio);
+        Portfolio portfolio = portfolioRepository.save(new Portfolio(user, name, description));
+        valuationEngine.portfolioCreated(portfolio.getId(), user.getId());
+        return portfolio;
     }
     
+    @Transactional(readOnly = true)
     public List<Portfolio> getPortfoliosByUser(Long userId) {
         return portfolioRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
     
+    @Transactional(readOnly = true)
+    public List<Portfolio> getPortfoliosWithInvestmentsByUser(Long userId) {
+        return portfolioRepository.findWithInvestmentsByUserIdOrderByCreatedAtDesc(userId);
+    }
+    
+    @Transactional(readOnly = true)
     public Optional<Portfolio> getPortfolioById(Long id) {
         return portfolioRepository.findById(id);
     }
     
+    /**
+     * Get a reference to a portfolio whose existence has already been checked, without loading it
+     */
+    public Portfolio getPortfolioReference(Long id) {
+        return portfolioRepository.getReferenceById(id);
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<Portfolio> getPortfolioWithInvestmentsById(Long id) {
+        return portfolioRepository.findWithInvestmentsById(id);
+    }
+    
     public Portfolio updatePortfolio(Long id, String name, String description) {
         Portfolio portfolio = portfolioRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Portfolio not found"));
@@ -38,11 +68,43 @@ public class PortfolioService {
     }
     
     public void deletePortfolio(Long id) {
-        portfolioRepository.deleteById(id);
+        valuationEngine.tracking(() -> {
+            portfolioRepository.deleteById(id);
+            valuationEngine.portfolioDeleted(id);
+            return null;
+        });
     }
     
+    /**
+     * Check ownership with a single existence query. Verified pairs are remembered for the
+     * rest of the current request, so repeated checks do not go back to the database.
+     */
+    @Transactional(readOnly = true)
     public boolean isPortfolioOwnedByUser(Long portfolioId, Long userId) {
-        Optional<Portfolio> portfolio = portfolioRepository.findById(portfolioId);
-        return portfolio.isPresent() && portfolio.get().getUser().getId().equals(userId);
+        Set<String> verified = verifiedOwnership();
+        String key = userId + ":" + portfolioId;
+        if (verified != null && verified.contains(key)) {
+            return true;
+        }
+        
+        boolean owned = portfolioRepository.existsByIdAndUserId(portfolioId, userId);
+        if (owned && verified != null) {
+            verified.add(key);
+        }
+        return owned;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Set<String> verifiedOwnership() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Set<String> verified = (Set<String>) attributes.getAttribute(OWNERSHIP_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (verified == null) {
+            verified = new HashSet<>();
+            attributes.setAttribute(OWNERSHIP_ATTRIBUTE, verified, RequestAttributes.SCOPE_REQUEST);
+        }
+        return verified;
     }
 }
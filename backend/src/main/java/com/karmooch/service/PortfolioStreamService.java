@@ -0,0 +1,431 @@
+package com.karmooch.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karmooch.config.ReadReplicaRouting;
+import com.karmooch.dto.PortfolioValuationDto;
+import com.karmooch.entity.Investment;
+import com.karmooch.entity.Portfolio;
+import com.karmooch.entity.PortfolioSummaryPosition;
+import com.karmooch.repository.PortfolioSummaryPositionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes live portfolio valuations to Server-Sent Events subscribers.
+ *
+ * Subscribers are indexed by the symbols and portfolios they hold. When prices move, each
+ * changed symbol's "price" frame is encoded once and the same frame is queued for every
+ * subscriber of that symbol. Portfolio totals come from {@link PortfolioValuationEngine},
+ * and only portfolios whose totals changed get a small "valuation" frame, instead of the
+ * client re-polling the full summary.
+ *
+ * Listeners only queue frames; a small sender pool writes them to the clients, so a slow
+ * client never holds up the price refresh. A subscriber whose queue fills up is disconnected
+ * and reconnects with fresh state. Holdings changes re-index the affected subscriptions.
+ */
+@Service
+public class PortfolioStreamService {
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private PortfolioValuationEngine valuationEngine;
+
+    @Autowired
+    private PortfolioSummaryPositionRepository positionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${portfolio-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${portfolio-stream.max-queued-frames:256}")
+    private int maxQueuedFrames;
+
+    @Value("${portfolio-stream.sender-threads:4}")
+    private int senderThreads;
+
+    private final ConcurrentHashMap<String, Set<Subscription>> subscribersBySymbol = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Subscription>> subscribersByPortfolio = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Subscription>> subscribersByUser = new ConcurrentHashMap<>();
+
+    // Portfolios with a re-index queued, so a burst of writes re-reads the holdings once
+    private final Set<Long> pendingReindex = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("portfolio-stream-");
+        threadFactory.setDaemon(true);
+        sender = Executors.newFixedThreadPool(senderThreads, threadFactory);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+    }
+
+    /**
+     * Open a stream of valuation updates for all portfolios of a user.
+     * The current valuation of every portfolio is sent straight away.
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(userId, emitter);
+
+        Map<Long, Set<String>> holdings = new LinkedHashMap<>();
+        for (Portfolio portfolio : portfolioService.getPortfoliosWithInvestmentsByUser(userId)) {
+            Set<String> symbols = new HashSet<>();
+            for (Investment investment : portfolio.getInvestments()) {
+                symbols.add(investment.getSymbol().toUpperCase());
+            }
+            holdings.put(portfolio.getId(), symbols);
+        }
+
+        register(subscribersByUser, userId, subscription);
+        Map<Long, PortfolioValuationDto> valuations = valuationEngine.getValuations(holdings.keySet());
+        for (Map.Entry<Long, Set<String>> portfolio : holdings.entrySet()) {
+            subscription.send(valuationFrame(valuations.get(portfolio.getKey())));
+            subscription.hold(portfolio.getKey(), portfolio.getValue());
+        }
+
+        emitter.onCompletion(subscription::ended);
+        emitter.onTimeout(subscription::ended);
+        emitter.onError(e -> subscription.ended());
+
+        return emitter;
+    }
+
+    /**
+     * Fan out price changes to subscribers holding the changed symbols
+     */
+    @EventListener
+    public void onPriceUpdate(PriceUpdateEvent event) {
+        if (subscribersBySymbol.isEmpty()) {
+            return;
+        }
+
+        PriceStore.Snapshot snapshot = event.getCurrent();
+        for (int id = 0; id < snapshot.capacity(); id++) {
+            if (!event.isChanged(id)) {
+                continue;
+            }
+
+            Set<Subscription> subscribers = subscribersBySymbol.get(snapshot.symbol(id));
+            if (subscribers == null || subscribers.isEmpty()) {
+                continue;
+            }
+
+            Set<ResponseBodyEmitter.DataWithMediaType> frame = priceFrame(snapshot.symbol(id), snapshot.price(id));
+            for (Subscription subscription : subscribers) {
+                subscription.send(frame);
+            }
+        }
+    }
+
+    /**
+     * Push changed portfolio totals to the subscribers of those portfolios
+     */
+    @EventListener
+    public void onValuationChange(PortfolioValuationEvent event) {
+        if (subscribersByPortfolio.isEmpty()) {
+            return;
+        }
+
+        for (PortfolioValuationDto valuation : event.getValuations()) {
+            Set<Subscription> subscribers = subscribersByPortfolio.get(valuation.getPortfolioId());
+            if (subscribers == null || subscribers.isEmpty()) {
+                continue;
+            }
+
+            Set<ResponseBodyEmitter.DataWithMediaType> frame = valuationFrame(valuation);
+            for (Subscription subscription : subscribers) {
+                subscription.send(frame);
+            }
+        }
+    }
+
+    /**
+     * Keep subscriptions in step with created and deleted portfolios and with bought or sold
+     * symbols. Runs after the write commits; holdings are re-read on the sender pool.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHoldingsChange(PortfolioHoldingsEvent event) {
+        Long portfolioId = event.getPortfolioId();
+        switch (event.getType()) {
+            case CREATED -> {
+                if (subscribersByUser.containsKey(event.getUserId())) {
+                    execute(() -> addPortfolio(event.getUserId(), portfolioId));
+                }
+            }
+            case CHANGED -> {
+                if (subscribersByPortfolio.containsKey(portfolioId) && pendingReindex.add(portfolioId)) {
+                    execute(() -> reindex(portfolioId));
+                }
+            }
+            case DELETED -> {
+                Set<Subscription> subscribers = subscribersByPortfolio.get(portfolioId);
+                if (subscribers != null) {
+                    for (Subscription subscription : new ArrayList<>(subscribers)) {
+                        subscription.release(portfolioId);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addPortfolio(Long userId, Long portfolioId) {
+        Set<Subscription> subscribers = subscribersByUser.get(userId);
+        if (subscribers == null) {
+            return;
+        }
+        Set<String> symbols = symbolsOf(portfolioId);
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = valuationFrame(valuationEngine.getValuation(portfolioId));
+        for (Subscription subscription : subscribers) {
+            subscription.hold(portfolioId, symbols);
+            subscription.send(frame);
+        }
+    }
+
+    private void reindex(Long portfolioId) {
+        pendingReindex.remove(portfolioId);
+        Set<Subscription> subscribers = subscribersByPortfolio.get(portfolioId);
+        if (subscribers == null) {
+            return;
+        }
+        Set<String> symbols = symbolsOf(portfolioId);
+        for (Subscription subscription : new ArrayList<>(subscribers)) {
+            subscription.hold(portfolioId, symbols);
+        }
+    }
+
+    // Read right after the write, so from the primary rather than a lagging replica
+    private Set<String> symbolsOf(Long portfolioId) {
+        return ReadReplicaRouting.onPrimary(() -> positionRepository.findByPortfolioId(portfolioId)).stream()
+            .map(PortfolioSummaryPosition::getSymbol)
+            .collect(Collectors.toSet());
+    }
+
+    private void execute(Runnable task) {
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscription.releaseAll();
+        unregister(subscribersByUser, subscription.userId, subscription);
+    }
+
+    private static <K> void register(ConcurrentHashMap<K, Set<Subscription>> index, K key, Subscription subscription) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+    }
+
+    private static <K> void unregister(ConcurrentHashMap<K, Set<Subscription>> index, K key, Subscription subscription) {
+        index.computeIfPresent(key, (k, subscribers) -> {
+            subscribers.remove(subscription);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> priceFrame(String symbol, BigDecimal price) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("symbol", symbol);
+        payload.put("price", price);
+        return frame("price", payload);
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> valuationFrame(PortfolioValuationDto valuation) {
+        return frame("valuation", valuation);
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> frame(String name, Object payload) {
+        try {
+            return SseEmitter.event()
+                .name(name)
+                .data(objectMapper.writeValueAsString(payload), MediaType.APPLICATION_JSON)
+                .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode " + name + " event", e);
+        }
+    }
+
+    private final class Subscription {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> frames;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile Throwable error;
+
+        // Symbols held per portfolio; guarded by this
+        private final Map<Long, Set<String>> holdings = new HashMap<>();
+
+        Subscription(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.frames = new ArrayBlockingQueue<>(maxQueuedFrames);
+        }
+
+        /**
+         * Queue a frame for the sender pool. A subscriber that cannot keep up is disconnected.
+         */
+        void send(Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (!frames.offer(frame)) {
+                close(null);
+                return;
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * The emitter finished on its own (client gone, timeout or error); stop queueing
+         */
+        void ended() {
+            completed.set(true);
+            if (closed.compareAndSet(false, true)) {
+                unsubscribe(this);
+                frames.clear();
+            }
+        }
+
+        // The emitter serializes send and complete, so both are left to the one drain running
+        // for this subscription; the caller never waits on a stalled client
+        private void close(Throwable cause) {
+            if (closed.compareAndSet(false, true)) {
+                error = cause;
+                unsubscribe(this);
+                frames.clear();
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> frame;
+                while (!closed.get() && (frame = frames.poll()) != null) {
+                    emitter.send(frame);
+                }
+            } catch (Exception e) {
+                // Client went away; drop the subscription
+                close(e);
+            } finally {
+                draining.set(false);
+            }
+            if (closed.get()) {
+                complete();
+            } else if (!frames.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                if (error != null) {
+                    emitter.completeWithError(error);
+                } else {
+                    emitter.complete();
+                }
+            }
+        }
+
+        /**
+         * Index the subscription under a portfolio and exactly the symbols it now holds
+         */
+        synchronized void hold(Long portfolioId, Set<String> symbols) {
+            if (closed.get()) {
+                return;
+            }
+            Set<String> before = heldSymbols();
+            holdings.put(portfolioId, symbols);
+            register(subscribersByPortfolio, portfolioId, this);
+            reindexSymbols(before);
+        }
+
+        synchronized void release(Long portfolioId) {
+            Set<String> before = heldSymbols();
+            if (holdings.remove(portfolioId) != null) {
+                unregister(subscribersByPortfolio, portfolioId, this);
+                reindexSymbols(before);
+            }
+        }
+
+        synchronized void releaseAll() {
+            for (String symbol : heldSymbols()) {
+                unregister(subscribersBySymbol, symbol, this);
+            }
+            for (Long portfolioId : holdings.keySet()) {
+                unregister(subscribersByPortfolio, portfolioId, this);
+            }
+            holdings.clear();
+        }
+
+        private Set<String> heldSymbols() {
+            Set<String> symbols = new HashSet<>();
+            for (Set<String> portfolioSymbols : holdings.values()) {
+                symbols.addAll(portfolioSymbols);
+            }
+            return symbols;
+        }
+
+        private void reindexSymbols(Set<String> before) {
+            Set<String> after = heldSymbols();
+            for (String symbol : after) {
+                if (!before.contains(symbol)) {
+                    register(subscribersBySymbol, symbol, this);
+                }
+            }
+            for (String symbol : before) {
+                if (!after.contains(symbol)) {
+                    unregister(subscribersBySymbol, symbol, this);
+                }
+            }
+        }
+    }
+}
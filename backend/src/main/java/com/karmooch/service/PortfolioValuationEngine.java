@@ -0,0 +1,527 @@
+package com.karmooch.service;
+
+import com.karmooch.dto.PortfolioValuationDto;
+import com.karmooch.entity.Investment;
+import com.karmooch.entity.PortfolioSummary;
+import com.karmooch.entity.PortfolioSummaryPosition;
+import com.karmooch.config.ReadReplicaRouting;
+import com.karmooch.repository.InvestmentRepository;
+import com.karmooch.repository.PortfolioSummaryPositionRepository;
+import com.karmooch.repository.PortfolioSummaryRepository;
+import com.karmooch.util.FixedPoint;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Resident per-portfolio valuation aggregates: investment count, total cost,
+ * total shares per symbol and current market value.
+ *
+ * An aggregate is loaded the first time a portfolio is valued, from the trigger-maintained
+ * portfolio_summaries and portfolio_summary_positions tables rather than every investment lot.
+ * It is then kept up to date incrementally: investment writes through {@link InvestmentService}
+ * apply their delta in O(1), and a price tick adjusts the value of each holding portfolio
+ * by shares x (new price - old price). Valuing a portfolio is then a map lookup.
+ *
+ * Every change to what a portfolio holds is also published as a {@link PortfolioHoldingsEvent},
+ * whether or not its aggregate is resident.
+ *
+ * At most valuation.aggregates.maximum-size aggregates stay resident, and one that has not
+ * been read for valuation.aggregates.expire-after-access is dropped. Price ticks do not
+ * count as reads, so portfolios nobody looks at do not stay resident just because they tick.
+ */
+@Service
+public class PortfolioValuationEngine {
+
+    @Autowired
+    private InvestmentRepository investmentRepository;
+
+    @Autowired
+    private PortfolioSummaryRepository summaryRepository;
+
+    @Autowired
+    private PortfolioSummaryPositionRepository positionRepository;
+
+    @Autowired
+    private MarketDataService marketDataService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${valuation.aggregates.maximum-size:100000}")
+    private long maximumAggregates;
+
+    @Value("${valuation.aggregates.expire-after-access:1h}")
+    private Duration aggregateExpireAfterAccess;
+
+    private Cache<Long, Aggregate> aggregateCache;
+    private ConcurrentMap<Long, Aggregate> aggregates;
+    private final ConcurrentHashMap<String, Set<Long>> portfoliosBySymbol = new ConcurrentHashMap<>();
+
+    // Loads racing with a write must not cache what they read, see tracking()
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        aggregateCache = Caffeine.newBuilder()
+            .maximumSize(maximumAggregates)
+            .expireAfterAccess(aggregateExpireAfterAccess)
+            // Runs atomically with the eviction, so it cannot unindex a reloaded aggregate
+            .evictionListener((Long portfolioId, Aggregate aggregate, RemovalCause cause) -> {
+                for (String symbol : aggregate.symbols()) {
+                    unindex(symbol, portfolioId);
+                }
+            })
+            .build();
+        aggregates = aggregateCache.asMap();
+    }
+
+    /**
+     * Get the current valuation of a portfolio, loading its aggregate on first use
+     */
+    public PortfolioValuationDto getValuation(Long portfolioId) {
+        Aggregate aggregate = aggregates.get(portfolioId);
+        if (aggregate == null) {
+            aggregate = load(portfolioId);
+        }
+        return aggregate.valuation();
+    }
+
+    /**
+     * Get the current valuations of several portfolios, loading every missing aggregate
+     * from the pre-aggregated summary tables in two queries
+     */
+    public Map<Long, PortfolioValuationDto> getValuations(Collection<Long> portfolioIds) {
+        Map<Long, PortfolioValuationDto> valuations = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long portfolioId : portfolioIds) {
+            Aggregate aggregate = aggregates.get(portfolioId);
+            if (aggregate == null) {
+                missing.add(portfolioId);
+            } else {
+                valuations.put(portfolioId, aggregate.valuation());
+            }
+        }
+        if (missing.isEmpty()) {
+            return valuations;
+        }
+
+        boolean cacheable = writesInFlight.get() == 0;
+        long epoch = writeEpoch.get();
+        // Loaded aggregates are cached, so read them from the primary rather than a lagging replica
+        Map<Long, PortfolioSummary> summaries = ReadReplicaRouting.onPrimary(() ->
+            summaryRepository.findAllById(missing).stream()
+                .collect(Collectors.toMap(PortfolioSummary::getPortfolioId, summary -> summary)));
+        Map<Long, List<PortfolioSummaryPosition>> positionsByPortfolio = summaries.isEmpty()
+            ? Map.of()
+            : ReadReplicaRouting.onPrimary(() -> positionRepository.findByPortfolioIdIn(summaries.keySet())).stream()
+                .collect(Collectors.groupingBy(PortfolioSummaryPosition::getPortfolioId));
+
+        // The triggers give every portfolio a summary row; should one be missing, value it from its lots
+        List<Long> unsummarized = missing.stream().filter(id -> !summaries.containsKey(id)).toList();
+        Map<Long, List<Investment>> investmentsByPortfolio = unsummarized.isEmpty()
+            ? Map.of()
+            : ReadReplicaRouting.onPrimary(() -> investmentRepository.findByPortfolioIdIn(unsummarized)).stream()
+                .collect(Collectors.groupingBy(investment -> investment.getPortfolio().getId()));
+
+        for (Long portfolioId : missing) {
+            PortfolioSummary summary = summaries.get(portfolioId);
+            Aggregate aggregate = summary != null
+                ? load(summary, positionsByPortfolio.getOrDefault(portfolioId, List.of()), cacheable, epoch)
+                : load(portfolioId, investmentsByPortfolio.getOrDefault(portfolioId, List.of()), cacheable, epoch);
+            valuations.put(portfolioId, aggregate.valuation());
+        }
+        return valuations;
+    }
+
+    /**
+     * Run a database write to investments or portfolios so that concurrent aggregate loads cannot
+     * cache a state that the write's incremental update is then applied to twice
+     */
+    public <T> T tracking(Supplier<T> write) {
+        writesInFlight.incrementAndGet();
+        writeEpoch.incrementAndGet();
+        try {
+            return write.get();
+        } finally {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    public void investmentAdded(Investment investment) {
+        eventPublisher.publishEvent(PortfolioHoldingsEvent.changed(investment.getPortfolio().getId()));
+        Aggregate aggregate = aggregates.get(investment.getPortfolio().getId());
+        if (aggregate == null) {
+            return;
+        }
+        String symbol = investment.getSymbol().toUpperCase();
+        try {
+            boolean newSymbol = aggregate.add(symbol, shares(investment), cost(investment),
+                FixedPoint.unscaled(marketDataService.getCurrentPrice(symbol), FixedPoint.PRICE_SCALE));
+            if (newSymbol) {
+                index(symbol, aggregate.portfolioId);
+            }
+        } catch (ArithmeticException e) {
+            // Beyond fixed-point range; the next read reloads and values it exactly
+            evict(aggregate.portfolioId);
+            return;
+        }
+        publish(aggregate);
+    }
+
+    public void investmentRemoved(Investment investment) {
+        investmentRemoved(investment.getPortfolio().getId(), investment.getSymbol(),
+            investment.getShares(), investment.getPurchasePrice());
+    }
+
+    /**
+     * Remove the contribution of an investment as it was before being changed or deleted
+     */
+    public void investmentRemoved(Long portfolioId, String symbol, BigDecimal shares, BigDecimal purchasePrice) {
+        eventPublisher.publishEvent(PortfolioHoldingsEvent.changed(portfolioId));
+        Aggregate aggregate = aggregates.get(portfolioId);
+        if (aggregate == null) {
+            return;
+        }
+        String key = symbol.toUpperCase();
+        try {
+            long removedShares = FixedPoint.round(shares, FixedPoint.SHARES_SCALE);
+            long removedCost = FixedPoint.amount(removedShares,
+                FixedPoint.round(purchasePrice, FixedPoint.PRICE_SCALE));
+            if (aggregate.remove(key, removedShares, removedCost)) {
+                unindex(key, portfolioId);
+            }
+        } catch (ArithmeticException e) {
+            evict(portfolioId);
+            return;
+        }
+        publish(aggregate);
+    }
+
+    /**
+     * Rebuild a portfolio's aggregate after a write that bypassed the incremental updates,
+     * such as a bulk import, and push the new valuation to listeners
+     */
+    public void reload(Long portfolioId) {
+        evict(portfolioId);
+        eventPublisher.publishEvent(PortfolioHoldingsEvent.changed(portfolioId));
+        eventPublisher.publishEvent(new PortfolioValuationEvent(List.of(getValuation(portfolioId))));
+    }
+
+    public void portfolioCreated(Long portfolioId, Long userId) {
+        eventPublisher.publishEvent(PortfolioHoldingsEvent.created(portfolioId, userId));
+    }
+
+    public void portfolioDeleted(Long portfolioId) {
+        evict(portfolioId);
+        eventPublisher.publishEvent(PortfolioHoldingsEvent.deleted(portfolioId));
+    }
+
+    /**
+     * Drop a resident aggregate; the next read loads it again
+     */
+    private void evict(Long portfolioId) {
+        Aggregate aggregate = aggregates.remove(portfolioId);
+        if (aggregate != null) {
+            for (String symbol : aggregate.symbols()) {
+                unindex(symbol, portfolioId);
+            }
+        }
+    }
+
+    /**
+     * Revalue every loaded portfolio that holds a symbol whose price changed
+     */
+    @EventListener
+    public void onPriceUpdate(PriceUpdateEvent event) {
+        PriceStore.Snapshot snapshot = event.getCurrent();
+        Map<Long, Aggregate> changed = new HashMap<>();
+
+        for (int id = 0; id < snapshot.capacity(); id++) {
+            if (!event.isChanged(id)) {
+                continue;
+            }
+            Set<Long> portfolioIds = portfoliosBySymbol.get(snapshot.symbol(id));
+            if (portfolioIds == null) {
+                continue;
+            }
+            for (Long portfolioId : portfolioIds) {
+                Aggregate aggregate = aggregateCache.policy().getIfPresentQuietly(portfolioId);
+                try {
+                    if (aggregate != null && aggregate.reprice(snapshot.symbol(id), snapshot.cents(id))) {
+                        changed.put(portfolioId, aggregate);
+                    }
+                } catch (ArithmeticException e) {
+                    evict(portfolioId);
+                    changed.remove(portfolioId);
+                }
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            List<PortfolioValuationDto> valuations = new ArrayList<>(changed.size());
+            for (Aggregate aggregate : changed.values()) {
+                valuations.add(aggregate.valuation());
+            }
+            eventPublisher.publishEvent(new PortfolioValuationEvent(valuations));
+        }
+    }
+
+    private Aggregate load(Long portfolioId) {
+        boolean cacheable = writesInFlight.get() == 0;
+        long epoch = writeEpoch.get();
+
+        // Loaded aggregates are cached, so read them from the primary rather than a lagging replica
+        return ReadReplicaRouting.onPrimary(() -> {
+            Optional<PortfolioSummary> summary = summaryRepository.findById(portfolioId);
+            if (summary.isPresent()) {
+                return load(summary.get(), positionRepository.findByPortfolioId(portfolioId), cacheable, epoch);
+            }
+            return load(portfolioId, investmentRepository.findByPortfolioId(portfolioId), cacheable, epoch);
+        });
+    }
+
+    /**
+     * Build an aggregate from the trigger-maintained summary: one row per held symbol
+     */
+    private Aggregate load(PortfolioSummary summary, List<PortfolioSummaryPosition> positions,
+                           boolean cacheable, long epoch) {
+        Long portfolioId = summary.getPortfolioId();
+        Map<String, BigDecimal> prices = marketDataService.getCurrentPrices(
+            positions.stream().map(PortfolioSummaryPosition::getSymbol).toList());
+
+        Aggregate aggregate = new Aggregate(portfolioId);
+        try {
+            aggregate.addTotals(summary.getInvestmentCount(),
+                FixedPoint.round(summary.getTotalCost(), FixedPoint.AMOUNT_SCALE));
+            for (PortfolioSummaryPosition position : positions) {
+                aggregate.addPosition(position.getSymbol(),
+                    FixedPoint.round(position.getShares(), FixedPoint.SHARES_SCALE),
+                    FixedPoint.unscaled(prices.get(position.getSymbol()), FixedPoint.PRICE_SCALE));
+            }
+        } catch (ArithmeticException e) {
+            // Too large for fixed-point: value it exactly and do not keep it resident
+            BigDecimal totalValue = BigDecimal.ZERO;
+            for (PortfolioSummaryPosition position : positions) {
+                totalValue = totalValue.add(position.getShares().multiply(prices.get(position.getSymbol())));
+            }
+            return Aggregate.exact(portfolioId, summary.getInvestmentCount(), totalValue, summary.getTotalCost());
+        }
+        return cache(aggregate, cacheable, epoch);
+    }
+
+    private Aggregate load(Long portfolioId, List<Investment> investments, boolean cacheable, long epoch) {
+        Map<String, BigDecimal> prices = marketDataService.getCurrentPrices(
+            investments.stream().map(investment -> investment.getSymbol().toUpperCase()).toList());
+
+        Aggregate aggregate = new Aggregate(portfolioId);
+        try {
+            for (Investment investment : investments) {
+                String symbol = investment.getSymbol().toUpperCase();
+                aggregate.add(symbol, shares(investment), cost(investment),
+                    FixedPoint.unscaled(prices.get(symbol), FixedPoint.PRICE_SCALE));
+            }
+        } catch (ArithmeticException e) {
+            // Too large for fixed-point: value it exactly and do not keep it resident
+            BigDecimal totalCost = BigDecimal.ZERO;
+            BigDecimal totalValue = BigDecimal.ZERO;
+            for (Investment investment : investments) {
+                totalCost = totalCost.add(investment.getShares().multiply(investment.getPurchasePrice()));
+                totalValue = totalValue.add(investment.getShares().multiply(
+                    prices.get(investment.getSymbol().toUpperCase())));
+            }
+            return Aggregate.exact(portfolioId, investments.size(), totalValue, totalCost);
+        }
+        return cache(aggregate, cacheable, epoch);
+    }
+
+    /**
+     * Keep a freshly built aggregate resident unless a write raced with the load
+     */
+    private Aggregate cache(Aggregate aggregate, boolean cacheable, long epoch) {
+        Long portfolioId = aggregate.portfolioId;
+        if (!cacheable || writeEpoch.get() != epoch) {
+            return aggregate;
+        }
+
+        Aggregate existing = aggregates.putIfAbsent(portfolioId, aggregate);
+        if (existing != null) {
+            return existing;
+        }
+        for (String symbol : aggregate.symbols()) {
+            index(symbol, portfolioId);
+        }
+
+        // Catch up with any tick published while the aggregate was being built
+        try {
+            Map<String, BigDecimal> latest = marketDataService.getCurrentPrices(aggregate.symbols());
+            for (Map.Entry<String, BigDecimal> price : latest.entrySet()) {
+                aggregate.reprice(price.getKey(), FixedPoint.unscaled(price.getValue(), FixedPoint.PRICE_SCALE));
+            }
+        } catch (ArithmeticException e) {
+            evict(portfolioId);
+        }
+        return aggregate;
+    }
+
+    private void index(String symbol, Long portfolioId) {
+        portfoliosBySymbol.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(portfolioId);
+    }
+
+    private void unindex(String symbol, Long portfolioId) {
+        portfoliosBySymbol.computeIfPresent(symbol, (s, portfolioIds) -> {
+            portfolioIds.remove(portfolioId);
+            return portfolioIds.isEmpty() ? null : portfolioIds;
+        });
+    }
+
+    private void publish(Aggregate aggregate) {
+        eventPublisher.publishEvent(new PortfolioValuationEvent(List.of(aggregate.valuation())));
+    }
+
+    // Rounded the way the numeric columns store them, so the engine matches what a reload would read
+    private static long shares(Investment investment) {
+        return FixedPoint.round(investment.getShares(), FixedPoint.SHARES_SCALE);
+    }
+
+    private static long cost(Investment investment) {
+        return FixedPoint.amount(shares(investment),
+            FixedPoint.round(investment.getPurchasePrice(), FixedPoint.PRICE_SCALE));
+    }
+
+    /**
+     * Running totals of one portfolio in fixed-point: shares at scale 6, prices in cents,
+     * cost and value at amount scale 8
+     */
+    private static final class Aggregate {
+
+        private final Long portfolioId;
+        private final Map<String, Long> shares = new HashMap<>();
+        private final Map<String, Long> prices = new HashMap<>();
+        private int investmentCount;
+        private long totalCost;
+        private long totalValue;
+
+        // Set only for portfolios too large for fixed-point, which are never cached
+        private PortfolioValuationDto exactValuation;
+
+        Aggregate(Long portfolioId) {
+            this.portfolioId = portfolioId;
+        }
+
+        static Aggregate exact(Long portfolioId, int investmentCount, BigDecimal totalValue, BigDecimal totalCost) {
+            Aggregate aggregate = new Aggregate(portfolioId);
+            aggregate.exactValuation = PortfolioValuationDto.fromTotals(
+                portfolioId, investmentCount, totalValue, totalCost);
+            return aggregate;
+        }
+
+        synchronized void addTotals(int count, long cost) {
+            totalCost = FixedPoint.add(totalCost, cost);
+            investmentCount += count;
+        }
+
+        synchronized void addPosition(String symbol, long positionShares, long price) {
+            long newValue = FixedPoint.add(totalValue, FixedPoint.amount(positionShares, price));
+            long newShares = FixedPoint.add(shares.getOrDefault(symbol, 0L), positionShares);
+
+            totalValue = newValue;
+            shares.put(symbol, newShares);
+            prices.put(symbol, price);
+        }
+
+        /**
+         * @return true if the portfolio did not hold the symbol before
+         */
+        synchronized boolean add(String symbol, long addedShares, long cost, long currentPrice) {
+            boolean newSymbol = !shares.containsKey(symbol);
+            long price = newSymbol ? currentPrice : prices.get(symbol);
+
+            long newCost = FixedPoint.add(totalCost, cost);
+            long newValue = FixedPoint.add(totalValue, FixedPoint.amount(addedShares, price));
+            long newShares = FixedPoint.add(shares.getOrDefault(symbol, 0L), addedShares);
+
+            investmentCount++;
+            totalCost = newCost;
+            totalValue = newValue;
+            shares.put(symbol, newShares);
+            prices.put(symbol, price);
+            return newSymbol;
+        }
+
+        /**
+         * @return true if the portfolio no longer holds the symbol
+         */
+        synchronized boolean remove(String symbol, long removedShares, long cost) {
+            Long held = shares.get(symbol);
+            if (held == null) {
+                return false;
+            }
+
+            long newCost = FixedPoint.subtract(totalCost, cost);
+            long newValue = FixedPoint.subtract(totalValue, FixedPoint.amount(removedShares, prices.get(symbol)));
+
+            investmentCount--;
+            totalCost = newCost;
+            totalValue = newValue;
+
+            long remaining = held - removedShares;
+            if (remaining > 0) {
+                shares.put(symbol, remaining);
+                return false;
+            }
+            shares.remove(symbol);
+            prices.remove(symbol);
+            return true;
+        }
+
+        /**
+         * @return true if the value of the portfolio changed
+         */
+        synchronized boolean reprice(String symbol, long newPrice) {
+            Long held = shares.get(symbol);
+            Long oldPrice = prices.get(symbol);
+            if (held == null || oldPrice == null || oldPrice == newPrice) {
+                return false;
+            }
+            totalValue = FixedPoint.add(totalValue,
+                FixedPoint.amount(held, FixedPoint.subtract(newPrice, oldPrice)));
+            prices.put(symbol, newPrice);
+            return true;
+        }
+
+        synchronized List<String> symbols() {
+            return new ArrayList<>(shares.keySet());
+        }
+
+        synchronized PortfolioValuationDto valuation() {
+            if (exactValuation != null) {
+                return exactValuation;
+            }
+            return PortfolioValuationDto.fromFixedPoint(portfolioId, investmentCount, totalValue, totalCost);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.karmooch.service;
+
+import com.karmooch.dto.PortfolioValuationDto;
+
+import java.util.List;
+
+/**
+ * Published by {@link PortfolioValuationEngine} with the new valuation of every loaded
+ * portfolio whose totals changed, either from a price tick or an investment write
+ */
+public class PortfolioValuationEvent {
+    
+    private final List<PortfolioValuationDto> valuations;
+    
+    public PortfolioValuationEvent(List<PortfolioValuationDto> valuations) {
+        this.valuations = valuations;
+    }
+    
+    public List<PortfolioValuationDto> getValuations() {
+        return valuations;
+    }
+}
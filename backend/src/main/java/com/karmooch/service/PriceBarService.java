@@ -0,0 +1,356 @@
+package com.karmooch.service;
+
+import com.karmooch.dto.PriceBarDto;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps open/high/low/close/volume bars for every symbol at each {@link BarResolution}.
+ *
+ * Every published price updates the current bar of each resolution in place, so chart
+ * reads only copy out precomputed bars and never scan raw ticks. Bars live in ring buffers
+ * that grow on demand up to the resolution's capacity.
+ *
+ * Closed bars of persisted resolutions are appended to a file per symbol and resolution.
+ * On startup those files are read back, and only the ticks after the last persisted bar
+ * (or the last warmup-days for the finer resolutions) are replayed from {@link PriceHistoryStore}.
+ */
+@Service
+public class PriceBarService {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceBarService.class);
+
+    /** Bytes per persisted bar: start, open, high, low, close, volume */
+    private static final int BAR_RECORD_SIZE = 48;
+
+    private static final String BAR_FILE_SUFFIX = ".bars";
+    private static final Pattern SAFE_SYMBOL = Pattern.compile("[A-Z0-9.\\-]{1,20}");
+
+    @Autowired(required = false)
+    private PriceHistoryStore priceHistoryStore;
+
+    @Value("${market-data.bars.warmup-days:7}")
+    private int warmupDays;
+
+    @Value("${market-data.bars.directory:data/price-bars}")
+    private String directory;
+
+    private final ConcurrentHashMap<String, BarSeries[]> seriesBySymbol = new ConcurrentHashMap<>();
+    private Path root;
+
+    @PostConstruct
+    public void warmUp() throws IOException {
+        root = Paths.get(directory);
+        Files.createDirectories(root);
+
+        Set<String> symbols = new LinkedHashSet<>();
+        try (DirectoryStream<Path> symbolDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path symbolDir : symbolDirs) {
+                symbols.add(symbolDir.getFileName().toString());
+            }
+        }
+        if (priceHistoryStore != null) {
+            symbols.addAll(priceHistoryStore.getSymbols());
+        }
+
+        long to = System.currentTimeMillis();
+        for (String symbol : symbols) {
+            if (!SAFE_SYMBOL.matcher(symbol).matches()) {
+                continue;
+            }
+            try {
+                warmUp(symbol, to);
+            } catch (IOException e) {
+                log.error("Failed to restore bars for {}: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    private void warmUp(String symbol, long to) throws IOException {
+        BarSeries[] series = seriesFor(symbol);
+        for (BarResolution resolution : BarResolution.values()) {
+            if (resolution.isPersisted()) {
+                loadBars(symbol, series[resolution.ordinal()]);
+            }
+        }
+        if (priceHistoryStore == null) {
+            return;
+        }
+
+        // Replay each resolution from where its bars end: persisted ones from their last
+        // closed bar (their whole window the first time), the others from warmup-days back
+        long[] replayFrom = new long[series.length];
+        long from = to;
+        for (BarResolution resolution : BarResolution.values()) {
+            BarSeries bars = series[resolution.ordinal()];
+            long start;
+            if (!resolution.isPersisted()) {
+                start = warmupDays > 0 ? to - warmupDays * BarResolution.ONE_DAY.getMillis() : Long.MAX_VALUE;
+            } else if (bars.isEmpty()) {
+                start = to - resolution.getCapacity() * resolution.getMillis();
+            } else {
+                start = bars.lastStart() + resolution.getMillis();
+            }
+            replayFrom[resolution.ordinal()] = start;
+            from = Math.min(from, start);
+        }
+
+        priceHistoryStore.getTicks(symbol, from, to).forEach((timestamp, priceCents, volume) -> {
+            for (BarSeries bars : series) {
+                if (timestamp >= replayFrom[bars.resolution.ordinal()]) {
+                    update(symbol, bars, timestamp, priceCents, volume);
+                }
+            }
+        });
+    }
+
+    /**
+     * Roll every published price into the current bars
+     */
+    @EventListener
+    public void onPriceUpdate(PriceUpdateEvent event) {
+        PriceStore.Snapshot snapshot = event.getCurrent();
+        for (int id = 0; id < snapshot.capacity(); id++) {
+            if (snapshot.has(id)) {
+                record(snapshot.symbol(id), event.getTimestamp(), snapshot.cents(id), event.getVolume(id));
+            }
+        }
+    }
+
+    /**
+     * Roll a single tick into the bars of every resolution
+     */
+    public void record(String symbol, long timestamp, long priceCents, long volume) {
+        for (BarSeries bars : seriesFor(symbol)) {
+            update(symbol, bars, timestamp, priceCents, volume);
+        }
+    }
+
+    /**
+     * Get the most recent bars for a symbol, oldest first, including the bar still in progress
+     */
+    public List<PriceBarDto> getBars(String symbol, BarResolution resolution, int limit) {
+        BarSeries[] series = seriesBySymbol.get(symbol.toUpperCase());
+        if (series == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        return series[resolution.ordinal()].latest(limit);
+    }
+
+    private BarSeries[] seriesFor(String symbol) {
+        return seriesBySymbol.computeIfAbsent(symbol, s -> {
+            BarResolution[] resolutions = BarResolution.values();
+            BarSeries[] series = new BarSeries[resolutions.length];
+            for (BarResolution resolution : resolutions) {
+                series[resolution.ordinal()] = new BarSeries(resolution);
+            }
+            return series;
+        });
+    }
+
+    private void update(String symbol, BarSeries bars, long timestamp, long priceCents, long volume) {
+        long[] closed = bars.update(timestamp, priceCents, volume);
+        if (closed != null && bars.resolution.isPersisted()) {
+            appendBar(symbol, bars.resolution, closed);
+        }
+    }
+
+    private Path barFile(String symbol, BarResolution resolution) {
+        return root.resolve(symbol).resolve(resolution.getCode() + BAR_FILE_SUFFIX);
+    }
+
+    /**
+     * Append a closed bar to the symbol's file. Failures are logged, the bar stays in memory.
+     */
+    private void appendBar(String symbol, BarResolution resolution, long[] bar) {
+        if (!SAFE_SYMBOL.matcher(symbol).matches()) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(BAR_RECORD_SIZE);
+        for (long field : bar) {
+            record.putLong(field);
+        }
+        record.flip();
+
+        Path file = barFile(symbol, resolution);
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to persist {} bar for {}: {}", resolution.getCode(), symbol, e.getMessage());
+        }
+    }
+
+    /**
+     * Read back the most recent persisted bars. A partly written last record is ignored.
+     */
+    private void loadBars(String symbol, BarSeries bars) throws IOException {
+        Path file = barFile(symbol, bars.resolution);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long records = channel.size() / BAR_RECORD_SIZE;
+            long first = Math.max(0, records - bars.resolution.getCapacity());
+            ByteBuffer buffer = ByteBuffer.allocate((int) (records - first) * BAR_RECORD_SIZE);
+            long position = first * BAR_RECORD_SIZE;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= BAR_RECORD_SIZE) {
+                bars.restore(buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), buffer.getLong(), buffer.getLong());
+            }
+        }
+    }
+
+    /**
+     * Ring buffer of bars for one symbol and resolution, stored column-wise in primitive arrays.
+     * The arrays start small and double until they reach the resolution's capacity.
+     */
+    private static final class BarSeries {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final BarResolution resolution;
+        private long[] start = new long[0];
+        private long[] open = new long[0];
+        private long[] high = new long[0];
+        private long[] low = new long[0];
+        private long[] close = new long[0];
+        private long[] volume = new long[0];
+        private int last = -1;
+        private int size;
+
+        BarSeries(BarResolution resolution) {
+            this.resolution = resolution;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        synchronized long lastStart() {
+            return start[last];
+        }
+
+        /**
+         * Roll a tick into the current bar. Returns the bar it closed as
+         * (start, open, high, low, close, volume), or null if no bar was closed.
+         */
+        synchronized long[] update(long timestamp, long priceCents, long tickVolume) {
+            long bucket = resolution.bucketStart(timestamp);
+
+            if (size > 0 && start[last] == bucket) {
+                high[last] = Math.max(high[last], priceCents);
+                low[last] = Math.min(low[last], priceCents);
+                close[last] = priceCents;
+                volume[last] += tickVolume;
+                return null;
+            }
+            if (size > 0 && bucket < start[last]) {
+                // Late tick for a bar that has already closed
+                return null;
+            }
+
+            long[] closed = size > 0
+                ? new long[] {start[last], open[last], high[last], low[last], close[last], volume[last]}
+                : null;
+            append(bucket, priceCents, priceCents, priceCents, priceCents, tickVolume);
+            return closed;
+        }
+
+        /** Put back a persisted bar; bars must arrive oldest first */
+        synchronized void restore(long barStart, long barOpen, long barHigh, long barLow, long barClose,
+                                  long barVolume) {
+            if (size > 0 && barStart <= start[last]) {
+                return;
+            }
+            append(barStart, barOpen, barHigh, barLow, barClose, barVolume);
+        }
+
+        private void append(long barStart, long barOpen, long barHigh, long barLow, long barClose,
+                            long barVolume) {
+            if (size == start.length && size < resolution.getCapacity()) {
+                grow();
+            }
+            last = (last + 1) % start.length;
+            size = Math.min(size + 1, start.length);
+            start[last] = barStart;
+            open[last] = barOpen;
+            high[last] = barHigh;
+            low[last] = barLow;
+            close[last] = barClose;
+            volume[last] = barVolume;
+        }
+
+        /** Double the arrays, laying out the bars oldest first from index 0 */
+        private void grow() {
+            int capacity = Math.min(Math.max(INITIAL_CAPACITY, start.length * 2), resolution.getCapacity());
+            start = unroll(start, capacity);
+            open = unroll(open, capacity);
+            high = unroll(high, capacity);
+            low = unroll(low, capacity);
+            close = unroll(close, capacity);
+            volume = unroll(volume, capacity);
+            last = size - 1;
+        }
+
+        private long[] unroll(long[] values, int capacity) {
+            long[] grown = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                grown[i] = values[Math.floorMod(last - size + 1 + i, values.length)];
+            }
+            return grown;
+        }
+
+        synchronized List<PriceBarDto> latest(int limit) {
+            int count = Math.min(limit, size);
+            List<PriceBarDto> bars = new ArrayList<>(count);
+            for (int i = count - 1; i >= 0; i--) {
+                int index = Math.floorMod(last - i, start.length);
+                bars.add(new PriceBarDto(
+                    start[index],
+                    BigDecimal.valueOf(open[index], PriceStore.PRICE_SCALE),
+                    BigDecimal.valueOf(high[index], PriceStore.PRICE_SCALE),
+                    BigDecimal.valueOf(low[index], PriceStore.PRICE_SCALE),
+                    BigDecimal.valueOf(close[index], PriceStore.PRICE_SCALE),
+                    volume[index]
+                ));
+            }
+            return bars;
+        }
+    }
+}
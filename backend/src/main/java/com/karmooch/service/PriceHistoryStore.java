@@ -0,0 +1,388 @@
+package com.karmooch.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only store of price ticks per symbol.
+ *
+ * Each symbol has its own directory of fixed-size segment files that are memory-mapped
+ * and filled with fixed-width records of (timestamp, price in cents, volume). Records are
+ * appended in timestamp order, so a range scan is two binary searches per segment and
+ * returns read-only slices of the mapped segments without copying any records.
+ *
+ * A symbol's first segment is small and each following one doubles, up to
+ * records-per-segment, so rarely traded or mistyped symbols stay cheap. At most
+ * max-symbols symbols are recorded; ticks of further symbols are not stored.
+ */
+@Service
+@ConditionalOnProperty(name = "market-data.history.enabled", havingValue = "true", matchIfMissing = true)
+public class PriceHistoryStore {
+
+    /** Bytes per record: timestamp (8), price cents (8), volume (8) */
+    public static final int RECORD_SIZE = 24;
+
+    private static final Logger log = LoggerFactory.getLogger(PriceHistoryStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final Pattern SAFE_SYMBOL = Pattern.compile("[A-Z0-9.\\-]{1,20}");
+
+    @Value("${market-data.history.directory:data/price-history}")
+    private String directory;
+
+    @Value("${market-data.history.records-per-segment:262144}")
+    private int recordsPerSegment;
+
+    @Value("${market-data.history.initial-records-per-segment:4096}")
+    private int initialRecordsPerSegment;
+
+    @Value("${market-data.history.max-symbols:2000}")
+    private int maxSymbols;
+
+    private final ConcurrentHashMap<String, SymbolHistory> histories = new ConcurrentHashMap<>();
+    private Path root;
+
+    @PostConstruct
+    public void open() throws IOException {
+        root = Paths.get(directory);
+        Files.createDirectories(root);
+
+        try (DirectoryStream<Path> symbolDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path symbolDir : symbolDirs) {
+                String symbol = symbolDir.getFileName().toString();
+                if (SAFE_SYMBOL.matcher(symbol).matches()) {
+                    histories.put(symbol, SymbolHistory.load(symbolDir, initialRecordsPerSegment, recordsPerSegment));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (SymbolHistory history : histories.values()) {
+            history.force();
+        }
+    }
+
+    /**
+     * Record every published price as a tick. Write failures are logged rather than thrown,
+     * so the bar, valuation and stream listeners still see the snapshot.
+     */
+    @EventListener
+    public void onPriceUpdate(PriceUpdateEvent event) {
+        PriceStore.Snapshot snapshot = event.getCurrent();
+        for (int id = 0; id < snapshot.capacity(); id++) {
+            if (snapshot.has(id)) {
+                try {
+                    append(snapshot.symbol(id), event.getTimestamp(), snapshot.cents(id), event.getVolume(id));
+                } catch (UncheckedIOException e) {
+                    log.error("Dropped tick for {}: {}", snapshot.symbol(id), e.getCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Append a tick for a symbol. Ticks older than the latest stored tick for the symbol are dropped,
+     * as are ticks of new symbols once max-symbols symbols are stored.
+     */
+    public void append(String symbol, long timestamp, long priceCents, long volume) {
+        if (!SAFE_SYMBOL.matcher(symbol).matches()) {
+            return;
+        }
+
+        SymbolHistory history = histories.get(symbol);
+        if (history == null) {
+            if (histories.size() >= maxSymbols) {
+                return;
+            }
+            history = histories.computeIfAbsent(symbol,
+                s -> new SymbolHistory(root.resolve(s), initialRecordsPerSegment, recordsPerSegment));
+        }
+        try {
+            history.append(timestamp, priceCents, volume);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append tick for " + symbol, e);
+        }
+    }
+
+    /**
+     * Get all ticks for a symbol with from <= timestamp <= to (epoch milliseconds)
+     */
+    public TickRange getTicks(String symbol, long from, long to) {
+        SymbolHistory history = histories.get(symbol.toUpperCase());
+        if (history == null || from > to) {
+            return TickRange.EMPTY;
+        }
+        return history.range(from, to);
+    }
+
+    /**
+     * Symbols that have at least one stored tick
+     */
+    public List<String> getSymbols() {
+        return new ArrayList<>(histories.keySet());
+    }
+
+    /**
+     * Callback for iterating ticks without materializing them
+     */
+    @FunctionalInterface
+    public interface TickConsumer {
+        void accept(long timestamp, long priceCents, long volume);
+    }
+
+    /**
+     * Zero-copy view of a run of ticks, backed by read-only slices of the mapped segments
+     */
+    public static final class TickRange {
+
+        static final TickRange EMPTY = new TickRange(Collections.emptyList());
+
+        private final List<ByteBuffer> slices;
+        private final int size;
+
+        TickRange(List<ByteBuffer> slices) {
+            this.slices = slices;
+            int total = 0;
+            for (ByteBuffer slice : slices) {
+                total += slice.limit() / RECORD_SIZE;
+            }
+            this.size = total;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public long timestampAt(int index) {
+            return field(index, 0);
+        }
+
+        public long priceCentsAt(int index) {
+            return field(index, 8);
+        }
+
+        public long volumeAt(int index) {
+            return field(index, 16);
+        }
+
+        public void forEach(TickConsumer consumer) {
+            for (ByteBuffer slice : slices) {
+                for (int offset = 0; offset < slice.limit(); offset += RECORD_SIZE) {
+                    consumer.accept(slice.getLong(offset), slice.getLong(offset + 8), slice.getLong(offset + 16));
+                }
+            }
+        }
+
+        private long field(int index, int fieldOffset) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Tick index " + index + " out of range for size " + size);
+            }
+            for (ByteBuffer slice : slices) {
+                int records = slice.limit() / RECORD_SIZE;
+                if (index < records) {
+                    return slice.getLong(index * RECORD_SIZE + fieldOffset);
+                }
+                index -= records;
+            }
+            throw new IllegalStateException("Tick index not found");
+        }
+    }
+
+    /**
+     * Segments of one symbol, oldest first. Only the refresh thread appends,
+     * readers see a record once the segment's volatile count covers it.
+     */
+    private static final class SymbolHistory {
+
+        private final Path directory;
+        private final int initialRecordsPerSegment;
+        private final int recordsPerSegment;
+        private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+        // Not a monitor: segment files are created and flushed while holding it,
+        // which would pin a virtual thread to its carrier
+        private final ReentrantLock lock = new ReentrantLock();
+
+        SymbolHistory(Path directory, int initialRecordsPerSegment, int recordsPerSegment) {
+            this.directory = directory;
+            this.initialRecordsPerSegment = Math.max(1, Math.min(initialRecordsPerSegment, recordsPerSegment));
+            this.recordsPerSegment = recordsPerSegment;
+        }
+
+        static SymbolHistory load(Path directory, int initialRecordsPerSegment, int recordsPerSegment)
+                throws IOException {
+            SymbolHistory history = new SymbolHistory(directory, initialRecordsPerSegment, recordsPerSegment);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            Collections.sort(files);
+            for (Path file : files) {
+                Segment segment = Segment.open(file, history.capacityOf(history.segments.size()));
+                if (segment.count > 0) {
+                    history.segments.add(segment);
+                }
+            }
+            return history;
+        }
+
+        void append(long timestamp, long priceCents, long volume) throws IOException {
+            lock.lock();
+            try {
+                Segment tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (tail != null && timestamp < tail.lastTimestamp()) {
+                    return;
+                }
+                if (tail == null || tail.isFull()) {
+                    Files.createDirectories(directory);
+                    String name = String.format("%010d%s", segments.size(), SEGMENT_SUFFIX);
+                    tail = Segment.open(directory.resolve(name), capacityOf(segments.size()));
+                    segments.add(tail);
+                }
+                tail.append(timestamp, priceCents, volume);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Records in the segment with the given index: doubling from the initial size up to the full size */
+        int capacityOf(int index) {
+            int shift = Math.min(index, 30);
+            return (int) Math.min((long) initialRecordsPerSegment << shift, recordsPerSegment);
+        }
+
+        TickRange range(long from, long to) {
+            List<ByteBuffer> slices = new ArrayList<>();
+            for (Segment segment : segments) {
+                int count = segment.count;
+                if (count == 0 || segment.timestampAt(0) > to || segment.timestampAt(count - 1) < from) {
+                    continue;
+                }
+                int start = segment.lowerBound(from, count);
+                int end = segment.lowerBound(to + 1, count);
+                if (start < end) {
+                    slices.add(segment.slice(start, end));
+                }
+            }
+            return slices.isEmpty() ? TickRange.EMPTY : new TickRange(slices);
+        }
+
+        void force() {
+            lock.lock();
+            try {
+                for (Segment segment : segments) {
+                    segment.buffer.force();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private volatile int count;
+
+        private Segment(MappedByteBuffer buffer, int capacity, int count) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.count = count;
+        }
+
+        static Segment open(Path file, int recordsPerSegment) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+                 FileChannel channel = raf.getChannel()) {
+                long length = Math.max(raf.length(), (long) recordsPerSegment * RECORD_SIZE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                int capacity = (int) (length / RECORD_SIZE);
+                return new Segment(buffer, capacity, findCount(buffer, capacity));
+            }
+        }
+
+        /** Files are pre-sized and zero filled, so the first record with timestamp 0 marks the end */
+        private static int findCount(ByteBuffer buffer, int capacity) {
+            int low = 0;
+            int high = capacity;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (buffer.getLong(mid * RECORD_SIZE) != 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        boolean isFull() {
+            return count >= capacity;
+        }
+
+        long timestampAt(int index) {
+            return buffer.getLong(index * RECORD_SIZE);
+        }
+
+        long lastTimestamp() {
+            return count == 0 ? Long.MIN_VALUE : timestampAt(count - 1);
+        }
+
+        void append(long timestamp, long priceCents, long volume) {
+            int offset = count * RECORD_SIZE;
+            buffer.putLong(offset + 8, priceCents);
+            buffer.putLong(offset + 16, volume);
+            buffer.putLong(offset, timestamp);
+            count = count + 1;
+        }
+
+        /** First index in [0, count) whose timestamp is >= the given timestamp */
+        int lowerBound(long timestamp, int count) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestampAt(mid) < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        ByteBuffer slice(int start, int end) {
+            return buffer.slice(start * RECORD_SIZE, (end - start) * RECORD_SIZE).asReadOnlyBuffer();
+        }
+    }
+}
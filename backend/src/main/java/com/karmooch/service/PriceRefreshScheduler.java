@@ -0,0 +1,28 @@
+package com.karmooch.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically refreshes market prices on the scheduler thread so that
+ * no request ever pays for a refresh.
+ */
+@Component
+@ConditionalOnProperty(name = "market-data.refresh.enabled", havingValue = "true", matchIfMissing = true)
+public class PriceRefreshScheduler {
+    
+    @Autowired
+    private MarketDataService marketDataService;
+    
+    @Scheduled(fixedDelayString = "${market-data.refresh.interval-ms:5000}",
+               initialDelayString = "${market-data.refresh.interval-ms:5000}")
+    public void refreshPrices() {
+        try {
+            marketDataService.updateMockPrices();
+        } catch (Exception e) {
+            System.err.println("Error refreshing market prices: " + e.getMessage());
+        }
+    }
+}
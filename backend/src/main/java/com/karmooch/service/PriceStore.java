@@ -0,0 +1,174 @@
+package com.karmooch.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Concurrent store of the latest price per symbol.
+ *
+ * Symbols are interned to dense int ids and prices are held in primitive arrays
+ * inside an immutable, versioned {@link Snapshot}. Readers take the current snapshot
+ * with a single volatile read and index into it, so the read path never locks and
+ * never allocates. Writers copy the arrays and publish a new snapshot with a CAS.
+ */
+public class PriceStore {
+
+    /** Prices are stored as cents (scale 2). */
+    public static final int PRICE_SCALE = 2;
+
+    private final ConcurrentHashMap<String, Integer> symbolIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+
+    /**
+     * Get the id for a symbol, assigning a new one if the symbol has not been seen before.
+     * The symbol must already be upper case.
+     */
+    public int intern(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return symbolIds.computeIfAbsent(symbol, s -> nextId.getAndIncrement());
+    }
+
+    /**
+     * Get the id for a symbol, or -1 if the symbol has never been interned
+     */
+    public int idOf(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Get the currently published snapshot
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Get the price for a symbol, or null if it has no price yet
+     */
+    public BigDecimal get(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        return id != null ? current.get().price(id) : null;
+    }
+
+    /**
+     * Set the price for a symbol only if it does not have one yet.
+     * @return the price that is stored once this call returns
+     */
+    public BigDecimal putIfAbsent(String symbol, long cents) {
+        int id = intern(symbol);
+        while (true) {
+            Snapshot snapshot = current.get();
+            BigDecimal existing = snapshot.price(id);
+            if (existing != null) {
+                return existing;
+            }
+            Snapshot next = snapshot.with(id, symbol, cents);
+            if (current.compareAndSet(snapshot, next)) {
+                return next.price(id);
+            }
+        }
+    }
+
+    /**
+     * Set the price for a symbol, replacing any existing price
+     */
+    public void put(String symbol, long cents) {
+        int id = intern(symbol);
+        while (true) {
+            Snapshot snapshot = current.get();
+            if (current.compareAndSet(snapshot, snapshot.with(id, symbol, cents))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publish a complete new set of prices for every symbol in {@code base} with a single atomic swap.
+     * {@code newCents} is indexed by symbol id and must cover {@code base.capacity()} slots; empty slots are ignored.
+     * @return the published snapshot, or null if another writer published since {@code base} was taken
+     */
+    public Snapshot publish(Snapshot base, long[] newCents) {
+        Snapshot next = base.withPrices(newCents);
+        return current.compareAndSet(base, next) ? next : null;
+    }
+
+    /**
+     * Immutable, versioned view of every stored price, indexed by symbol id.
+     * Slots for ids that have no price yet hold a null price.
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, new String[0], new long[0], new BigDecimal[0]);
+
+        private final long version;
+        private final String[] symbols;
+        private final long[] cents;
+        private final BigDecimal[] prices;
+
+        Snapshot(long version, String[] symbols, long[] cents, BigDecimal[] prices) {
+            this.version = version;
+            this.symbols = symbols;
+            this.cents = cents;
+            this.prices = prices;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /** Number of id slots in this snapshot, some of which may be empty */
+        public int capacity() {
+            return symbols.length;
+        }
+
+        public boolean has(int id) {
+            return id >= 0 && id < prices.length && prices[id] != null;
+        }
+
+        public String symbol(int id) {
+            return id >= 0 && id < symbols.length ? symbols[id] : null;
+        }
+
+        public long cents(int id) {
+            return cents[id];
+        }
+
+        public BigDecimal price(int id) {
+            return id >= 0 && id < prices.length ? prices[id] : null;
+        }
+
+        Snapshot withPrices(long[] newCents) {
+            long[] copiedCents = Arrays.copyOf(newCents, symbols.length);
+            BigDecimal[] newPrices = new BigDecimal[symbols.length];
+            for (int id = 0; id < symbols.length; id++) {
+                if (prices[id] != null) {
+                    newPrices[id] = copiedCents[id] == cents[id]
+                        ? prices[id]
+                        : BigDecimal.valueOf(copiedCents[id], PRICE_SCALE);
+                } else {
+                    copiedCents[id] = 0;
+                }
+            }
+            return new Snapshot(version + 1, symbols, copiedCents, newPrices);
+        }
+
+        Snapshot with(int id, String symbol, long priceCents) {
+            int length = Math.max(symbols.length, id + 1);
+            String[] newSymbols = Arrays.copyOf(symbols, length);
+            long[] newCents = Arrays.copyOf(cents, length);
+            BigDecimal[] newPrices = Arrays.copyOf(prices, length);
+            newSymbols[id] = symbol;
+            newCents[id] = priceCents;
+            newPrices[id] = BigDecimal.valueOf(priceCents, PRICE_SCALE);
+            return new Snapshot(version + 1, newSymbols, newCents, newPrices);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.karmooch.service;
+
+/**
+ * Published by {@link MarketDataService} every time a complete new set of prices
+ * has been swapped in. Listeners run on the refresh thread, never on a request thread.
+ */
+public class PriceUpdateEvent {
+    
+    private final PriceStore.Snapshot previous;
+    private final PriceStore.Snapshot current;
+    private final long timestamp;
+    private final long[] volumes;
+    
+    public PriceUpdateEvent(PriceStore.Snapshot previous, PriceStore.Snapshot current,
+                            long timestamp, long[] volumes) {
+        this.previous = previous;
+        this.current = current;
+        this.timestamp = timestamp;
+        this.volumes = volumes;
+    }
+    
+    /** Snapshot that was replaced */
+    public PriceStore.Snapshot getPrevious() {
+        return previous;
+    }
+    
+    /** Snapshot that was published */
+    public PriceStore.Snapshot getCurrent() {
+        return current;
+    }
+    
+    /** Epoch milliseconds at which the prices were taken */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    /** Traded volume since the previous update for a symbol id */
+    public long getVolume(int id) {
+        return id < volumes.length ? volumes[id] : 0;
+    }
+    
+    /** Whether the price of a symbol id differs from the previous snapshot */
+    public boolean isChanged(int id) {
+        return current.has(id) && (!previous.has(id) || previous.cents(id) != current.cents(id));
+    }
+}
@@ -0,0 +1,59 @@
+package com.karmooch.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.karmooch.config.AuthenticatedUser;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Short-lived, single-use tickets that authenticate the Server-Sent Events stream.
+ *
+ * EventSource cannot set an Authorization header, so the stream is opened with a ticket in
+ * the query string instead of the bearer token, which would otherwise end up in access logs,
+ * proxy logs and browser history. A ticket is issued to an authenticated user, expires after
+ * {@code portfolio-stream.ticket-ttl} and is consumed by the first request that presents it.
+ */
+@Service
+public class StreamTicketService {
+
+    private static final int TICKET_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${portfolio-stream.ticket-ttl:30s}")
+    private Duration ticketTtl;
+
+    @Value("${portfolio-stream.max-tickets:100000}")
+    private long maxTickets;
+
+    private Cache<String, AuthenticatedUser> tickets;
+
+    @PostConstruct
+    public void init() {
+        tickets = Caffeine.newBuilder()
+            .maximumSize(maxTickets)
+            .expireAfterWrite(ticketTtl)
+            .build();
+    }
+
+    public String issue(AuthenticatedUser user) {
+        byte[] bytes = new byte[TICKET_BYTES];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, user);
+        return ticket;
+    }
+
+    /**
+     * The user a ticket was issued to, or null if it is unknown, expired or already used
+     */
+    public AuthenticatedUser redeem(String ticket) {
+        return tickets.asMap().remove(ticket);
+    }
+}
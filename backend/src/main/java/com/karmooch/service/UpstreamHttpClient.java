@@ -0,0 +1,76 @@
+package com.karmooch.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Shared non-blocking HTTP client for external market data providers.
+ *
+ * Connections are kept alive in the JDK client's pool and use HTTP/2 where the server
+ * offers it. Requests never block the caller: responses complete on a small fixed pool,
+ * and a host that already has the maximum number of requests in flight fails new ones
+ * straight away instead of queueing them.
+ */
+@Service
+public class UpstreamHttpClient {
+
+    @Value("${upstream-http.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${upstream-http.read-timeout:5s}")
+    private Duration readTimeout;
+
+    @Value("${upstream-http.max-concurrent-per-host:16}")
+    private int maxConcurrentPerHost;
+
+    @Value("${upstream-http.executor-threads:4}")
+    private int executorThreads;
+
+    private HttpClient httpClient;
+
+    private final ConcurrentHashMap<String, Semaphore> permitsByHost = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("upstream-http-");
+        threadFactory.setDaemon(true);
+
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(Executors.newFixedThreadPool(executorThreads, threadFactory))
+            .build();
+    }
+
+    /**
+     * Send a GET request and complete with the full response body
+     */
+    public CompletableFuture<HttpResponse<byte[]>> get(URI uri) {
+        String host = uri.getHost();
+        Semaphore permits = permitsByHost.computeIfAbsent(host, h -> new Semaphore(maxConcurrentPerHost));
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new IOException("Too many concurrent requests to " + host));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(readTimeout)
+            .GET()
+            .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .whenComplete((response, error) -> permits.release());
+    }
+}
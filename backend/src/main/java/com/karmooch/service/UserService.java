@@ -5,6 +5,7 @@ import com.karmooch.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -27,14 +28,23 @@ public class UserService {
         return userRepository.save(user);
     }
     
+    @Transactional(readOnly = true)
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
     
+    @Transactional(readOnly = true)
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
     
+    /**
+     * Reference to a user known to exist, e.g. from a verified token, without loading the row
+     */
+    public User getUserReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+    
     public boolean validatePassword(User user, String password) {
         return passwordEncoder.matches(password, user.getPasswordHash());
     }
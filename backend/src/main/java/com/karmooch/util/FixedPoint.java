@@ -0,0 +1,108 @@
+package com.karmooch.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic on scaled longs for valuation hot paths.
+ *
+ * Quantities follow the column definitions of {@code investments}: shares have scale 6
+ * and prices scale 2, so a shares x price amount has scale 8 and is exact. Every operation
+ * throws {@link ArithmeticException} instead of overflowing or rounding silently, so callers
+ * can fall back to {@link BigDecimal} for values that do not fit. Rounding matches
+ * {@link RoundingMode#HALF_UP}, and {@link BigDecimal} is only created at the JSON boundary.
+ */
+public final class FixedPoint {
+
+    public static final int SHARES_SCALE = 6;
+    public static final int PRICE_SCALE = 2;
+    public static final int AMOUNT_SCALE = SHARES_SCALE + PRICE_SCALE;
+    public static final int PERCENTAGE_SCALE = 4;
+
+    private static final long PERCENTAGE_FACTOR = 10_000L;
+
+    // Largest gain or loss whose ratio to the cost still fits a long at percentage scale
+    private static final long MAX_LONG_PERCENTAGE_GAIN_LOSS = Long.MAX_VALUE / PERCENTAGE_FACTOR;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Unscaled value of a number that is already at the given scale
+     * @throws ArithmeticException if the scale differs or the value does not fit in a long
+     */
+    public static long unscaled(BigDecimal value, int scale) {
+        if (value.scale() != scale) {
+            throw new ArithmeticException("Expected scale " + scale + " but was " + value.scale());
+        }
+        return value.unscaledValue().longValueExact();
+    }
+
+    /**
+     * Round a number to the given scale the way a numeric column stores it (HALF_UP)
+     * and return the unscaled value
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public static long round(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Exact shares (scale 6) x price (scale 2) amount at scale 8
+     */
+    public static long amount(long shares, long price) {
+        return Math.multiplyExact(shares, price);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Divide and round half away from zero, like {@link RoundingMode#HALF_UP}
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        // |remainder| * 2 >= |divisor| without overflowing
+        long absRemainder = Math.abs(remainder);
+        long absDivisor = Math.abs(divisor);
+        if (absRemainder >= absDivisor - absRemainder) {
+            return (dividend < 0) == (divisor < 0) ? quotient + 1 : quotient - 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * gainLoss / cost rounded HALF_UP to 4 places and then multiplied by 100, which is
+     * exactly {@code gainLoss.divide(cost, 4, ROUND_HALF_UP).multiply(100)} for two
+     * amounts of the same scale; zero when there is no cost. Never throws: a gain or loss
+     * above about 9.2 million at amount scale is divided in {@link BigDecimal} instead.
+     */
+    public static BigDecimal percentage(long gainLoss, long cost) {
+        if (cost <= 0) {
+            return BigDecimal.ZERO;
+        }
+        if (gainLoss >= -MAX_LONG_PERCENTAGE_GAIN_LOSS && gainLoss <= MAX_LONG_PERCENTAGE_GAIN_LOSS) {
+            long ratio = divideHalfUp(gainLoss * PERCENTAGE_FACTOR, cost);
+            if (Math.abs(ratio) <= Long.MAX_VALUE / 100L) {
+                return BigDecimal.valueOf(ratio * 100L, PERCENTAGE_SCALE);
+            }
+        }
+        return BigDecimal.valueOf(gainLoss)
+            .divide(BigDecimal.valueOf(cost), PERCENTAGE_SCALE, RoundingMode.HALF_UP)
+            .multiply(BigDecimal.valueOf(100));
+    }
+
+    public static BigDecimal toBigDecimal(long unscaled, int scale) {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+}
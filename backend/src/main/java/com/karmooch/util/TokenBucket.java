@@ -0,0 +1,45 @@
+package com.karmooch.util;
+
+import java.time.Duration;
+
+/**
+ * Token bucket rate limiter: holds up to {@code capacity} permits and refills at a fixed rate,
+ * so short bursts are allowed while the long-run rate stays within the configured limit.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, long permits, Duration period) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) permits / period.toNanos();
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Take a permit if one is available, without waiting
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double availablePermits() {
+        refill();
+        return Math.floor(tokens);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
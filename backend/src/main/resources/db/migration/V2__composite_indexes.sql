@@ -0,0 +1,22 @@
+-- Composite indexes matched to the repository queries, so filtered and ordered reads
+-- walk one index range instead of collecting matches and sorting them.
+-- IF [NOT] EXISTS keeps this safe on databases created from a newer init.sql.
+
+-- PortfolioRepository.find*ByUserIdOrderByCreatedAtDesc and the export cursor
+-- (ORDER BY created_at DESC, id)
+DROP INDEX IF EXISTS idx_portfolios_user_id;
+CREATE INDEX IF NOT EXISTS idx_portfolios_user_created ON portfolios(user_id, created_at DESC, id);
+
+-- PortfolioRepository.existsByIdAndUserId, answered from the index alone
+CREATE INDEX IF NOT EXISTS idx_portfolios_id_user ON portfolios(id) INCLUDE (user_id);
+
+-- InvestmentRepository.findByPortfolioIdOrderByCreatedAtDesc and keyset pages on (created_at, id),
+-- scanned backwards for newest first; the leading portfolio_id serves findByPortfolioId(In)
+DROP INDEX IF EXISTS idx_investments_portfolio_id;
+CREATE INDEX IF NOT EXISTS idx_investments_portfolio_created ON investments(portfolio_id, created_at, id);
+
+-- InvestmentRepository.findByPortfolioIdAndSymbolIgnoreCase keyset pages
+CREATE INDEX IF NOT EXISTS idx_investments_portfolio_symbol_created ON investments(portfolio_id, UPPER(symbol), created_at, id);
+
+-- users.email is already indexed by its UNIQUE constraint
+DROP INDEX IF EXISTS idx_users_email;
@@ -0,0 +1,89 @@
+-- Per-portfolio aggregates maintained by triggers on investments, so summaries read
+-- one row per portfolio and one row per held symbol instead of every investment lot.
+-- Flyway runs this in one transaction: creating the triggers locks out writes to
+-- portfolios and investments until the backfill below has committed.
+
+CREATE TABLE IF NOT EXISTS portfolio_summaries (
+    portfolio_id BIGINT PRIMARY KEY REFERENCES portfolios(id) ON DELETE CASCADE,
+    investment_count INTEGER NOT NULL DEFAULT 0,
+    total_cost DECIMAL(30, 8) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS portfolio_summary_positions (
+    portfolio_id BIGINT NOT NULL REFERENCES portfolio_summaries(portfolio_id) ON DELETE CASCADE,
+    symbol VARCHAR(20) NOT NULL,
+    shares DECIMAL(21, 6) NOT NULL,
+    lot_count INTEGER NOT NULL,
+    PRIMARY KEY (portfolio_id, symbol)
+);
+
+-- Every portfolio starts with an empty summary
+CREATE OR REPLACE FUNCTION create_portfolio_summary()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO portfolio_summaries (portfolio_id) VALUES (NEW.id)
+    ON CONFLICT (portfolio_id) DO NOTHING;
+    RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+-- Apply the change of one investment row to its portfolio's summary and position
+CREATE OR REPLACE FUNCTION maintain_portfolio_summary()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        -- The summary may already be gone when the whole portfolio is being deleted
+        UPDATE portfolio_summaries
+        SET investment_count = investment_count - 1,
+            total_cost = total_cost - OLD.shares * OLD.purchase_price,
+            updated_at = CURRENT_TIMESTAMP
+        WHERE portfolio_id = OLD.portfolio_id;
+
+        UPDATE portfolio_summary_positions
+        SET shares = shares - OLD.shares,
+            lot_count = lot_count - 1
+        WHERE portfolio_id = OLD.portfolio_id AND symbol = UPPER(OLD.symbol);
+
+        DELETE FROM portfolio_summary_positions
+        WHERE portfolio_id = OLD.portfolio_id AND symbol = UPPER(OLD.symbol) AND lot_count <= 0;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO portfolio_summaries (portfolio_id, investment_count, total_cost)
+        VALUES (NEW.portfolio_id, 1, NEW.shares * NEW.purchase_price)
+        ON CONFLICT (portfolio_id) DO UPDATE
+        SET investment_count = portfolio_summaries.investment_count + 1,
+            total_cost = portfolio_summaries.total_cost + EXCLUDED.total_cost,
+            updated_at = CURRENT_TIMESTAMP;
+
+        INSERT INTO portfolio_summary_positions (portfolio_id, symbol, shares, lot_count)
+        VALUES (NEW.portfolio_id, UPPER(NEW.symbol), NEW.shares, 1)
+        ON CONFLICT (portfolio_id, symbol) DO UPDATE
+        SET shares = portfolio_summary_positions.shares + EXCLUDED.shares,
+            lot_count = portfolio_summary_positions.lot_count + 1;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE TRIGGER create_portfolios_summary AFTER INSERT ON portfolios
+    FOR EACH ROW EXECUTE FUNCTION create_portfolio_summary();
+
+CREATE TRIGGER maintain_investments_summary AFTER INSERT OR UPDATE OR DELETE ON investments
+    FOR EACH ROW EXECUTE FUNCTION maintain_portfolio_summary();
+
+-- Backfill the summaries of every existing portfolio from its investments
+INSERT INTO portfolio_summaries (portfolio_id, investment_count, total_cost)
+SELECT p.id, COUNT(i.id), COALESCE(SUM(i.shares * i.purchase_price), 0)
+FROM portfolios p
+LEFT JOIN investments i ON i.portfolio_id = p.id
+GROUP BY p.id
+ON CONFLICT (portfolio_id) DO NOTHING;
+
+INSERT INTO portfolio_summary_positions (portfolio_id, symbol, shares, lot_count)
+SELECT portfolio_id, UPPER(symbol), SUM(shares), COUNT(*)
+FROM investments
+GROUP BY portfolio_id, UPPER(symbol)
+ON CONFLICT (portfolio_id, symbol) DO NOTHING;
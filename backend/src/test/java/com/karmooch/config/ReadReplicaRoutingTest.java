@@ -0,0 +1,103 @@
+package com.karmooch.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routes transactions between two in-memory databases standing in for the primary and the
+ * replica, and checks which one each transaction reached by asking for the database name.
+ */
+@SpringBootTest(properties = {
+    "datasource-routing.enabled=true",
+    "datasource-routing.read-your-writes-window=500ms",
+    "datasource-routing.replica.url=jdbc:h2:mem:replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+    private static final String PRIMARY = "karmooch";
+    private static final String REPLICA = "replica";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertEquals(REPLICA, database(true));
+        assertEquals(PRIMARY, database(false));
+
+        authenticate(1L);
+        assertEquals(REPLICA, database(true));
+    }
+
+    @Test
+    void readsAfterAWriteGoToThePrimaryForTheWindow() throws InterruptedException {
+        authenticate(2L);
+        assertEquals(PRIMARY, database(false));
+
+        // The same user, whatever token they present, reads their write from the primary
+        assertEquals(PRIMARY, database(true));
+        authenticate(2L);
+        assertEquals(PRIMARY, database(true));
+
+        // Other users and anonymous requests are not affected
+        authenticate(3L);
+        assertEquals(REPLICA, database(true));
+        SecurityContextHolder.clearContext();
+        assertEquals(REPLICA, database(true));
+
+        Thread.sleep(600);
+        authenticate(2L);
+        assertEquals(REPLICA, database(true));
+    }
+
+    @Test
+    void rolledBackWriteDoesNotStick() {
+        authenticate(4L);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT DATABASE()", String.class);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(REPLICA, database(true));
+    }
+
+    @Test
+    void onPrimaryOverridesTheReplica() {
+        assertEquals(PRIMARY, ReadReplicaRouting.onPrimary(() -> database(true)));
+    }
+
+    private String database(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+            jdbcTemplate.queryForObject("SELECT DATABASE()", String.class).toLowerCase());
+    }
+
+    private static void authenticate(Long userId) {
+        AuthenticatedUser user = new AuthenticatedUser(userId, List.of("USER"));
+        SecurityContextHolder.getContext().setAuthentication(
+            UsernamePasswordAuthenticationToken.authenticated(user, null, user.authorities()));
+    }
+}
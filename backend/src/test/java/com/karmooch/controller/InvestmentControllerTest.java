@@ -0,0 +1,172 @@
+package com.karmooch.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karmooch.entity.Investment;
+import com.karmooch.entity.Portfolio;
+import com.karmooch.entity.User;
+import com.karmooch.repository.InvestmentRepository;
+import com.karmooch.repository.PortfolioRepository;
+import com.karmooch.repository.UserRepository;
+import com.karmooch.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InvestmentControllerTest {
+
+    private static final List<String> SYMBOLS = List.of("AAPL", "MSFT", "GOOGL");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private InvestmentRepository investmentRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private String token;
+    private Long portfolioId;
+    private String path;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User(
+            UUID.randomUUID() + "@example.com", "password-hash", "Page", "Test"));
+        Portfolio portfolio = portfolioRepository.save(new Portfolio(user, "Paged", null));
+        for (int i = 0; i < 9; i++) {
+            String symbol = SYMBOLS.get(i % SYMBOLS.size());
+            investmentRepository.save(new Investment(portfolio, symbol, symbol + " Inc.",
+                new BigDecimal("1.000000"), new BigDecimal("100.00"), LocalDate.of(2024, 1, 1)));
+        }
+        token = jwtService.generateToken(user);
+        portfolioId = portfolio.getId();
+        path = "/api/portfolios/" + portfolioId + "/investments";
+    }
+
+    @Test
+    void cursorWalksEveryInvestmentOnce() throws Exception {
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = authorized(get(path).param("limit", "4"));
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+            page.get("investments").forEach(investment -> assertTrue(seen.add(investment.get("id").asLong())));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        assertEquals(9, seen.size());
+    }
+
+    @Test
+    void cursorIsRejectedForAnotherSortOrSymbol() throws Exception {
+        String cursor = nextCursor(authorized(get(path).param("limit", "2").param("symbol", "aapl")));
+
+        mockMvc.perform(authorized(get(path).param("cursor", cursor).param("symbol", "AAPL")))
+            .andExpect(status().isOk());
+        mockMvc.perform(authorized(get(path).param("cursor", cursor).param("symbol", "MSFT")))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(authorized(get(path).param("cursor", cursor)))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(authorized(get(path).param("cursor", cursor).param("symbol", "AAPL").param("sort", "oldest")))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(authorized(get(path).param("cursor", "not-a-cursor")))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void withoutEnvelopeThePageIsAnArray() throws Exception {
+        mockMvc.perform(authorized(get(path).param("limit", "4").param("envelope", "false")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(4))
+            .andExpect(header().exists("X-Next-Cursor"));
+
+        mockMvc.perform(authorized(get(path).param("envelope", "false")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(9))
+            .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void withoutCursorOrLimitEveryInvestmentIsListed() throws Exception {
+        Portfolio portfolio = portfolioRepository.findById(portfolioId).orElseThrow();
+        for (int i = 0; i < 60; i++) {
+            investmentRepository.save(new Investment(portfolio, "NVDA", "NVIDIA Corp.",
+                new BigDecimal("1.000000"), new BigDecimal("100.00"), LocalDate.of(2024, 1, 1)));
+        }
+
+        // The shape and completeness clients had before the endpoint was paged
+        mockMvc.perform(authorized(get(path)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isArray())
+            .andExpect(jsonPath("$.length()").value(69))
+            .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(authorized(get(path).param("symbol", "nvda").param("sort", "oldest")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(60));
+    }
+
+    @Test
+    void importRecognisesCsvWhateverTheCase() throws Exception {
+        String csv = "symbol,name,shares,purchase_price,purchase_date\n"
+            + "AMZN,Amazon.com Inc.,2,180.00,2024-03-01\n";
+
+        mockMvc.perform(authorized(post(path + "/import"))
+                .header(HttpHeaders.CONTENT_TYPE, "Text/CSV; charset=utf-8")
+                .content(csv))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.failed").value(0));
+    }
+
+    private String nextCursor(MockHttpServletRequestBuilder request) throws Exception {
+        JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString());
+        return page.get("nextCursor").asText();
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+    }
+}
@@ -0,0 +1,154 @@
+package com.karmooch.controller;
+
+import com.karmooch.entity.Investment;
+import com.karmooch.entity.Portfolio;
+import com.karmooch.entity.User;
+import com.karmooch.repository.InvestmentRepository;
+import com.karmooch.repository.PortfolioRepository;
+import com.karmooch.repository.UserRepository;
+import com.karmooch.service.JwtService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements the dashboard endpoints issue, read from Hibernate's
+ * statistics. A lazy association touched per portfolio or per investment shows up here as
+ * a count that grows with the data and fails the build.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PortfolioQueryCountTest {
+
+    private static final List<String> SYMBOLS = List.of("AAPL", "MSFT", "GOOGL", "NVDA", "AMZN");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private InvestmentRepository investmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void summaryIssuesTheSameStatementsForAnyNumberOfPortfolios() throws Exception {
+        String fewPortfolios = token(createUser(2, 3));
+        String manyPortfolios = token(createUser(12, 5));
+
+        // Portfolios, then summaries and positions of every portfolio not yet resident
+        assertEquals(3, statementsFor("/api/portfolios/summary", fewPortfolios));
+        assertEquals(3, statementsFor("/api/portfolios/summary", manyPortfolios));
+
+        // Valuations are now resident, only the portfolio list is read
+        assertEquals(1, statementsFor("/api/portfolios/summary", manyPortfolios));
+    }
+
+    @Test
+    void portfolioDetailLoadsInvestmentsWithThePortfolio() throws Exception {
+        User user = createUser(1, 20);
+        Portfolio portfolio = portfolioRepository.findByUserIdOrderByCreatedAtDesc(user.getId()).get(0);
+
+        // Ownership check, then the portfolio with its investments in one join
+        assertEquals(2, statementsFor("/api/portfolios/" + portfolio.getId(), token(user)));
+    }
+
+    @Test
+    void investmentPageIssuesTheSameStatementsForAnyPageSize() throws Exception {
+        User user = createUser(1, 30);
+        Portfolio portfolio = portfolioRepository.findByUserIdOrderByCreatedAtDesc(user.getId()).get(0);
+        String path = "/api/portfolios/" + portfolio.getId() + "/investments";
+
+        // Ownership check, then one keyset page
+        assertEquals(2, statementsFor(path + "?limit=5", token(user)));
+        assertEquals(2, statementsFor(path + "?limit=30", token(user)));
+    }
+
+    private long statementsFor(String path, String token) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private String token(User user) {
+        return jwtService.generateToken(user);
+    }
+
+    /**
+     * Create a user with portfolios of investments, plus the summary rows the database
+     * triggers would maintain in Postgres
+     */
+    private User createUser(int portfolios, int investmentsPerPortfolio) {
+        User user = userRepository.save(new User(
+            UUID.randomUUID() + "@example.com", "password-hash", "Query", "Count"));
+
+        for (int p = 0; p < portfolios; p++) {
+            Portfolio portfolio = portfolioRepository.save(new Portfolio(user, "Portfolio " + p, null));
+            BigDecimal totalCost = BigDecimal.ZERO;
+            Map<String, BigDecimal> sharesBySymbol = new HashMap<>();
+            Map<String, Integer> lotsBySymbol = new HashMap<>();
+
+            for (int i = 0; i < investmentsPerPortfolio; i++) {
+                String symbol = SYMBOLS.get(i % SYMBOLS.size());
+                BigDecimal shares = new BigDecimal("10.000000");
+                BigDecimal price = new BigDecimal("100.00");
+                investmentRepository.save(new Investment(portfolio, symbol, symbol + " Inc.", shares, price,
+                    LocalDate.of(2024, 1, 1)));
+
+                totalCost = totalCost.add(shares.multiply(price));
+                sharesBySymbol.merge(symbol, shares, BigDecimal::add);
+                lotsBySymbol.merge(symbol, 1, Integer::sum);
+            }
+
+            jdbcTemplate.update("INSERT INTO portfolio_summaries (portfolio_id, investment_count, total_cost, updated_at) "
+                + "VALUES (?, ?, ?, CURRENT_TIMESTAMP)", portfolio.getId(), investmentsPerPortfolio, totalCost);
+            for (Map.Entry<String, BigDecimal> position : sharesBySymbol.entrySet()) {
+                jdbcTemplate.update("INSERT INTO portfolio_summary_positions (portfolio_id, symbol, shares, lot_count) "
+                    + "VALUES (?, ?, ?, ?)", portfolio.getId(), position.getKey(), position.getValue(),
+                    lotsBySymbol.get(position.getKey()));
+            }
+        }
+        return user;
+    }
+}
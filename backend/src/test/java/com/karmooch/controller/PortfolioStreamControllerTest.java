@@ -0,0 +1,81 @@
+package com.karmooch.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karmooch.entity.User;
+import com.karmooch.repository.UserRepository;
+import com.karmooch.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PortfolioStreamControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User(
+            UUID.randomUUID() + "@example.com", "password-hash", "Stream", "Test"));
+        token = jwtService.generateToken(user);
+    }
+
+    @Test
+    void ticketOpensTheStreamOnce() throws Exception {
+        String ticket = issueTicket();
+
+        mockMvc.perform(get("/api/portfolios/stream").param("ticket", ticket))
+            .andExpect(request().asyncStarted());
+
+        mockMvc.perform(get("/api/portfolios/stream").param("ticket", ticket))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void bearerTokenInTheQueryIsNotAccepted() throws Exception {
+        mockMvc.perform(get("/api/portfolios/stream").param("token", token))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/portfolios/stream").param("ticket", token))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void ticketsAreOnlyIssuedToAuthenticatedUsers() throws Exception {
+        mockMvc.perform(post("/api/portfolios/stream/ticket"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    private String issueTicket() throws Exception {
+        String body = mockMvc.perform(post("/api/portfolios/stream/ticket")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("ticket").asText();
+    }
+}
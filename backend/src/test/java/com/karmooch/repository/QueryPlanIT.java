@@ -0,0 +1,219 @@
+package com.karmooch.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Guards the indexes added by the schema migrations against regressions.
+ *
+ * Starts the application against a throwaway Postgres migrated by Flyway, runs the hottest
+ * repository methods, captures the SQL Hibernate generates for them and EXPLAINs it; no plan
+ * may need a sort or a sequential scan. Sequential scans are disabled for the check, since on
+ * an empty database the planner would rightly prefer them and hide a missing index.
+ *
+ * Runs with {@code mvn verify} and fails rather than skips when Docker is not available.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+    "spring.datasource.driver-class-name=org.postgresql.Driver",
+    "spring.flyway.enabled=true",
+    "spring.jpa.hibernate.ddl-auto=none",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.karmooch.repository.QueryPlanIT$CapturingInspector"
+})
+@ActiveProfiles("test")
+class QueryPlanIT {
+
+    // EXPLAIN (GENERIC_PLAN) of statements with placeholders needs Postgres 16
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final Set<String> SORTS = Set.of("Sort", "Incremental Sort");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    /**
+     * Records every statement Hibernate prepares while a capture is running
+     */
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> captured = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            captured.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private InvestmentRepository investmentRepository;
+
+    @Autowired
+    private PortfolioSummaryRepository summaryRepository;
+
+    @Autowired
+    private PortfolioSummaryPositionRepository positionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void portfolioQueriesAreIndexOrdered() {
+        assertIndexOrdered("PortfolioRepository.findByUserIdOrderByCreatedAtDesc",
+            () -> portfolioRepository.findByUserIdOrderByCreatedAtDesc(1L));
+        assertIndexOrdered("PortfolioRepository.existsByIdAndUserId",
+            () -> portfolioRepository.existsByIdAndUserId(1L, 1L));
+    }
+
+    @Test
+    void exportFollowsThePortfolioIndex() {
+        // Lots are ordered by id within each portfolio; an incremental sort on top of the
+        // index-ordered portfolios only sorts one portfolio's lots at a time
+        assertPlan("PortfolioRepository.streamExportRowsByUserId",
+            () -> transactionTemplate.executeWithoutResult(status ->
+                portfolioRepository.streamExportRowsByUserId(1L).forEach(row -> { })),
+            Set.of("Sort"));
+    }
+
+    @Test
+    void investmentQueriesAreIndexOrdered() {
+        Map<String, Object> lastRow = new LinkedHashMap<>();
+        lastRow.put("createdAt", LocalDateTime.now());
+        lastRow.put("id", 1L);
+
+        assertIndexOrdered("InvestmentRepository.findByPortfolioIdOrderByCreatedAtDesc",
+            () -> investmentRepository.findByPortfolioIdOrderByCreatedAtDesc(1L));
+        assertIndexOrdered("InvestmentRepository.findByPortfolioId (first keyset page)",
+            () -> investmentRepository.findByPortfolioId(1L, ScrollPosition.keyset(),
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"), Limit.of(50)));
+        assertIndexOrdered("InvestmentRepository.findByPortfolioId (next keyset page)",
+            () -> investmentRepository.findByPortfolioId(1L, ScrollPosition.forward(lastRow),
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"), Limit.of(50)));
+        assertIndexOrdered("InvestmentRepository.findByPortfolioIdAndSymbolIgnoreCase (next keyset page)",
+            () -> investmentRepository.findByPortfolioIdAndSymbolIgnoreCase(1L, "aapl", ScrollPosition.forward(lastRow),
+                Sort.by(Sort.Direction.ASC, "createdAt", "id"), Limit.of(50)));
+    }
+
+    @Test
+    void summaryQueriesUseTheirKeys() {
+        assertIndexOrdered("PortfolioSummaryRepository.findAllById",
+            () -> summaryRepository.findAllById(List.of(1L, 2L, 3L)));
+        assertIndexOrdered("PortfolioSummaryPositionRepository.findByPortfolioIdIn",
+            () -> positionRepository.findByPortfolioIdIn(List.of(1L, 2L, 3L)));
+    }
+
+    private void assertIndexOrdered(String query, Runnable call) {
+        assertPlan(query, call, SORTS);
+    }
+
+    private void assertPlan(String query, Runnable call, Set<String> forbiddenSorts) {
+        List<String> statements = capture(call);
+        assertFalse(statements.isEmpty(), query + " issued no SQL");
+
+        for (String sql : statements) {
+            List<String> plan = explain(sql);
+            List<String> offending = offendingNodes(plan, forbiddenSorts);
+            assertTrue(offending.isEmpty(), query + " uses " + offending + ":\n" + sql + "\n" + String.join("\n", plan));
+        }
+    }
+
+    private static List<String> capture(Runnable call) {
+        CapturingInspector.captured.clear();
+        try {
+            call.run();
+            return new ArrayList<>(CapturingInspector.captured);
+        } finally {
+            CapturingInspector.captured.clear();
+        }
+    }
+
+    private List<String> explain(String sql) {
+        return transactionTemplate.execute(status -> {
+            // SET LOCAL ends with the transaction, so pooled connections are left untouched
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN (GENERIC_PLAN) " + numberPlaceholders(sql), String.class);
+            status.setRollbackOnly();
+            return plan;
+        });
+    }
+
+    // JDBC '?' placeholders become the $n parameters a generic plan is made for
+    private static String numberPlaceholders(String sql) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 16);
+        boolean quoted = false;
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        if (quoted) {
+            fail("Unbalanced quote in " + sql);
+        }
+        return numbered.toString();
+    }
+
+    // Plan nodes that mean the index no longer delivers the rows in order; node lines are the
+    // first line and those starting with "->", the rest are details such as "Sort Key:"
+    private static List<String> offendingNodes(List<String> plan, Set<String> forbiddenSorts) {
+        List<String> offending = new ArrayList<>();
+        for (int i = 0; i < plan.size(); i++) {
+            String node = plan.get(i).trim();
+            if (node.startsWith("->")) {
+                node = node.substring(2).trim();
+            } else if (i > 0) {
+                continue;
+            }
+            int cost = node.indexOf("  (");
+            String name = cost > 0 ? node.substring(0, cost) : node;
+            if (forbiddenSorts.contains(name) || name.startsWith("Seq Scan")) {
+                offending.add(name);
+            }
+        }
+        return offending;
+    }
+}
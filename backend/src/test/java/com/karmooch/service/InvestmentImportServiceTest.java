@@ -0,0 +1,77 @@
+package com.karmooch.service;
+
+import com.karmooch.dto.InvestmentImportResultDto;
+import com.karmooch.entity.Portfolio;
+import com.karmooch.entity.User;
+import com.karmooch.repository.InvestmentRepository;
+import com.karmooch.repository.PortfolioRepository;
+import com.karmooch.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InvestmentImportServiceTest {
+
+    private static final String CSV = String.join("\n",
+        "symbol,name,shares,purchase_price,purchase_date",
+        "AAPL,Apple Inc.,10,150.00,2024-01-15",
+        "MSFT,Microsoft,abc,300.00,2024-02-01",
+        "GOOGL,\"Alphabet, Inc.\",5,140.00,2024-01-20");
+
+    @Autowired
+    private InvestmentImportService importService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private InvestmentRepository investmentRepository;
+
+    @Test
+    void importsValidRowsAndReportsInvalidOnes() throws Exception {
+        Portfolio portfolio = createPortfolio();
+
+        InvestmentImportResultDto result = importService.importInvestments(
+            portfolio.getId(), body(CSV), InvestmentImportService.Format.CSV);
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals(2, investmentRepository.findByPortfolioId(portfolio.getId()).size());
+    }
+
+    @Test
+    void rejectedBatchIsReportedInsteadOfFailingTheImport() throws Exception {
+        // No such portfolio, so the foreign key rejects the batch after the body was read
+        InvestmentImportResultDto result = importService.importInvestments(
+            Long.MAX_VALUE, body(CSV), InvestmentImportService.Format.CSV);
+
+        assertEquals(0, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertTrue(result.getErrors().get(1).getMessage().startsWith("Rows on lines 2-4 were not imported"));
+    }
+
+    private Portfolio createPortfolio() {
+        User user = userRepository.save(new User(
+            UUID.randomUUID() + "@example.com", "password-hash", "Import", "Test"));
+        return portfolioRepository.save(new Portfolio(user, "Imported", null));
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
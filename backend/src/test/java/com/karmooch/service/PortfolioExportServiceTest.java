@@ -0,0 +1,59 @@
+package com.karmooch.service;
+
+import com.karmooch.entity.Investment;
+import com.karmooch.entity.Portfolio;
+import com.karmooch.entity.User;
+import com.karmooch.repository.InvestmentRepository;
+import com.karmooch.repository.PortfolioRepository;
+import com.karmooch.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PortfolioExportServiceTest {
+
+    @Autowired
+    private PortfolioExportService exportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private InvestmentRepository investmentRepository;
+
+    @Test
+    void csvCellsCannotStartAFormula() {
+        User user = userRepository.save(new User(
+            UUID.randomUUID() + "@example.com", "password-hash", "Export", "Test"));
+        Portfolio portfolio = portfolioRepository.save(
+            new Portfolio(user, "=HYPERLINK(\"http://example.com\",\"Open\")", "+1 growth"));
+        Investment investment = investmentRepository.save(new Investment(portfolio, "-X", "@SUM(A1:A9)",
+            new BigDecimal("1.500000"), new BigDecimal("10.00"), LocalDate.of(2024, 1, 2)));
+
+        String[] lines = export(user.getId()).split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals(portfolio.getId() + ",\"'=HYPERLINK(\"\"http://example.com\"\",\"\"Open\"\")\",'+1 growth,"
+            + investment.getId() + ",'-X,'@SUM(A1:A9),1.500000,10.00,2024-01-02", lines[1]);
+    }
+
+    private String export(Long userId) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(userId, PortfolioExportService.Format.CSV, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.karmooch.util;
+
+import com.karmooch.dto.PortfolioValuationDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The fixed-point valuation must produce exactly what the BigDecimal valuation it replaced
+ * produces, including scale and HALF_UP rounding of the percentage.
+ */
+class FixedPointTest {
+
+    private static final long SEED = 20240611L;
+
+    @Test
+    void valuationMatchesBigDecimalForRandomPortfolios() {
+        Random random = new Random(SEED);
+        for (int run = 0; run < 20_000; run++) {
+            int lots = 1 + random.nextInt(8);
+            // Up to 10^5 shares at 10^4 dollars per lot, so gains reach well past $9.2M
+            long maxShares = pick(random, 1_000L, 1_000_000_000L, 100_000_000_000L);
+            long maxPrice = pick(random, 100L, 100_000L, 1_000_000L);
+
+            long costUnscaled = 0;
+            long valueUnscaled = 0;
+            BigDecimal cost = BigDecimal.ZERO;
+            BigDecimal value = BigDecimal.ZERO;
+            for (int lot = 0; lot < lots; lot++) {
+                long shares = 1 + Math.floorMod(random.nextLong(), maxShares);
+                long purchasePrice = 1 + Math.floorMod(random.nextLong(), maxPrice);
+                long currentPrice = Math.floorMod(random.nextLong(), maxPrice * 2);
+
+                costUnscaled = FixedPoint.add(costUnscaled, FixedPoint.amount(shares, purchasePrice));
+                valueUnscaled = FixedPoint.add(valueUnscaled, FixedPoint.amount(shares, currentPrice));
+                cost = cost.add(BigDecimal.valueOf(shares, 6).multiply(BigDecimal.valueOf(purchasePrice, 2)));
+                value = value.add(BigDecimal.valueOf(shares, 6).multiply(BigDecimal.valueOf(currentPrice, 2)));
+            }
+
+            assertSameValuation(
+                PortfolioValuationDto.fromTotals(1L, lots, value, cost),
+                PortfolioValuationDto.fromFixedPoint(1L, lots, valueUnscaled, costUnscaled));
+        }
+    }
+
+    @Test
+    void percentageOfLargeGainDoesNotOverflow() {
+        // Cost $50M, value $60M at amount scale 8: the gain times 10^4 no longer fits a long
+        long cost = 50_000_000L * 100_000_000L;
+        long value = 60_000_000L * 100_000_000L;
+
+        assertSameValuation(
+            PortfolioValuationDto.fromTotals(1L, 1, BigDecimal.valueOf(value, 8), BigDecimal.valueOf(cost, 8)),
+            PortfolioValuationDto.fromFixedPoint(1L, 1, value, cost));
+        assertEquals(new BigDecimal("20.0000"), FixedPoint.percentage(value - cost, cost));
+        assertEquals(new BigDecimal("-100.0000"), FixedPoint.percentage(-cost, cost));
+    }
+
+    @Test
+    void percentageRoundsHalfUpAtTheFourthPlace() {
+        // Ratios of exactly x.xxxx5 round away from zero
+        assertPercentage(1, 20_000);
+        assertPercentage(-1, 20_000);
+        assertPercentage(3, 20_000);
+        assertPercentage(-3, 20_000);
+        assertPercentage(1, 3);
+        assertPercentage(2, 3);
+        assertPercentage(-2, 3);
+        assertPercentage(Long.MAX_VALUE, 1);
+        assertPercentage(Long.MAX_VALUE / 10_000 + 1, 7);
+        assertPercentage(-(Long.MAX_VALUE / 10_000 + 1), 7);
+        assertEquals(BigDecimal.ZERO, FixedPoint.percentage(5, 0));
+    }
+
+    @Test
+    void divideHalfUpMatchesBigDecimal() {
+        Random random = new Random(SEED);
+        for (int run = 0; run < 100_000; run++) {
+            long dividend = random.nextLong() >> random.nextInt(64);
+            long divisor = random.nextLong() >> random.nextInt(64);
+            if (divisor == 0 || (dividend == Long.MIN_VALUE && divisor == -1)) {
+                continue;
+            }
+            long expected = BigDecimal.valueOf(dividend)
+                .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+            assertEquals(expected, FixedPoint.divideHalfUp(dividend, divisor), dividend + " / " + divisor);
+        }
+    }
+
+    private static void assertPercentage(long gainLoss, long cost) {
+        BigDecimal expected = BigDecimal.valueOf(gainLoss)
+            .divide(BigDecimal.valueOf(cost), 4, RoundingMode.HALF_UP)
+            .multiply(BigDecimal.valueOf(100));
+        assertEquals(expected, FixedPoint.percentage(gainLoss, cost), gainLoss + " / " + cost);
+    }
+
+    private static void assertSameValuation(PortfolioValuationDto expected, PortfolioValuationDto actual) {
+        assertEquals(expected.getInvestmentCount(), actual.getInvestmentCount());
+        assertEquals(expected.getTotalValue(), actual.getTotalValue());
+        assertEquals(expected.getTotalCost(), actual.getTotalCost());
+        assertEquals(expected.getTotalGainLoss(), actual.getTotalGainLoss());
+        assertEquals(expected.getTotalGainLossPercentage(), actual.getTotalGainLossPercentage());
+    }
+
+    private static long pick(Random random, long... bounds) {
+        return bounds[random.nextInt(bounds.length)];
+    }
+}
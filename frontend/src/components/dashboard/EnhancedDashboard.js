@@ -70,6 +70,75 @@ function EnhancedDashboard() {
     fetchPortfolioSummaries();
   }, []);
 
+  // Apply live valuation deltas pushed by the server instead of re-polling the summary
+  useEffect(() => {
+    if (!token) {
+      return undefined;
+    }
+
+    let source = null;
+    let retry = null;
+    let closed = false;
+
+    // Every connection needs a fresh single-use ticket, so reconnect by hand instead of
+    // letting EventSource retry with a ticket that is already spent
+    const connect = async () => {
+      try {
+        const response = await axios.post('http://localhost:8080/api/portfolios/stream/ticket', null, {
+          headers: {
+            'Authorization': `Bearer ${token}`
+          }
+        });
+        if (closed) {
+          return;
+        }
+        source = new EventSource(
+          `http://localhost:8080/api/portfolios/stream?ticket=${encodeURIComponent(response.data.ticket)}`
+        );
+      } catch (error) {
+        if (!closed) {
+          retry = setTimeout(connect, 5000);
+        }
+        return;
+      }
+
+      source.addEventListener('valuation', (event) => {
+        const valuation = JSON.parse(event.data);
+        setPortfolioSummaries((summaries) =>
+          summaries.map((portfolio) =>
+            portfolio.id === valuation.portfolioId
+              ? {
+                  ...portfolio,
+                  investmentCount: valuation.investmentCount,
+                  totalValue: valuation.totalValue,
+                  totalCost: valuation.totalCost,
+                  totalGainLoss: valuation.totalGainLoss,
+                  totalGainLossPercentage: valuation.totalGainLossPercentage
+                }
+              : portfolio
+          )
+        );
+      });
+
+      source.onerror = () => {
+        source.close();
+        if (!closed) {
+          retry = setTimeout(connect, 1000);
+        }
+      };
+    };
+
+    connect();
+
+    return () => {
+      closed = true;
+      clearTimeout(retry);
+      if (source) {
+        source.close();
+      }
+    };
+  }, [token]);
+
   const fetchPortfolioSummaries = async () => {
     try {
       const response = await axios.get('http://localhost:8080/api/portfolios/summary', {
@@ -55,6 +55,7 @@ function InvestmentManagement() {
   const { token } = useAuth();
   const { portfolioId } = useParams();
   const [investments, setInvestments] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState('');
   const [success, setSuccess] = useState('');
@@ -81,15 +82,19 @@ function InvestmentManagement() {
     fetchInvestments();
   }, [portfolioId]);
 
-  const fetchInvestments = async () => {
+  const fetchInvestments = async (cursor = null) => {
     setLoading(true);
     try {
       const response = await axios.get(`http://localhost:8080/api/portfolios/${portfolioId}/investments`, {
         headers: {
           'Authorization': `Bearer ${token}`
-        }
+        },
+        params: cursor ? { cursor, limit: 50 } : { limit: 50 }
       });
-      setInvestments(response.data);
+      setInvestments(cursor
+        ? [...investments, ...response.data.investments]
+        : response.data.investments);
+      setNextCursor(response.data.nextCursor);
     } catch (error) {
       setError('Failed to fetch investments');
     } finally {
@@ -342,6 +347,13 @@ function InvestmentManagement() {
               ))}
             </TableBody>
           </Table>
+          {nextCursor && (
+            <Box display="flex" justifyContent="center" p={2}>
+              <Button onClick={() => fetchInvestments(nextCursor)} disabled={loading}>
+                Load More
+              </Button>
+            </Box>
+          )}
         </TableContainer>
       )}
 
@@ -51,7 +51,8 @@ function IpoCalendar() {
   const { token } = useAuth();
   const [ipoData, setIpoData] = useState({
     next30Days: [],
-    currentMonth: []
+    currentMonth: [],
+    stale: false
   });
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState('');
@@ -73,7 +74,8 @@ function IpoCalendar() {
       
       setIpoData({
         next30Days: next30DaysResponse.data.ipoOfferings || [],
-        currentMonth: currentMonthResponse.data.ipoOfferings || []
+        currentMonth: currentMonthResponse.data.ipoOfferings || [],
+        stale: Boolean(next30DaysResponse.data.stale || currentMonthResponse.data.stale)
       });
     } catch (error) {
       setError('Failed to fetch IPO calendar data');
@@ -295,6 +297,12 @@ function IpoCalendar() {
         </Alert>
       )}
 
+      {ipoData.stale && (
+        <Alert severity="warning" sx={{ mb: 2 }}>
+          Finnhub is currently unavailable. Showing the last known IPO calendar, which may be out of date.
+        </Alert>
+      )}
+
       <Box sx={{ borderBottom: 1, borderColor: 'divider', mb: 3 }}>
         <Tabs value={activeTab} onChange={handleTabChange}>
           <Tab 